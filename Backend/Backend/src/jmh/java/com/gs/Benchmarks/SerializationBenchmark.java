@@ -0,0 +1,111 @@
+package com.gs.Benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.gs.DTO.SubmissionDTO;
+import com.gs.Entities.Role;
+import com.gs.Entities.Submission;
+import com.gs.Entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a challenge's submission list: the entities as the controllers returned them before,
+ * the DTO records, and the DTO records with Blackbird. Run with {@code mvn -Pbenchmark verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    int submissions;
+
+    // a small prediction file
+    @Param({"2048"})
+    int fileBytes;
+
+    private ObjectMapper mapper;
+    private ObjectMapper blackbirdMapper;
+    private List<Submission> entities;
+    private List<SubmissionDTO> dtos;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // configured like the application's mapper
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        blackbirdMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(new BlackbirdModule())
+                .build();
+
+        Random random = new Random(42);
+        Role role = new Role(1L, "PARTICIPANT");
+        entities = new ArrayList<>(submissions);
+        for (int i = 0; i < submissions; i++) {
+            // without a profile: the loaded profile points back at its user and the entity graph recurses
+            User user = new User();
+            user.setId((long) i % 50);
+            user.setEmail("user" + i % 50 + "@example.com");
+            user.setProviderId("provider-" + i % 50);
+            user.setRole(role);
+            user.setProfileCompleted(true);
+            user.setTeam("team-" + i % 10);
+
+            byte[] file = new byte[fileBytes];
+            random.nextBytes(file);
+            Submission submission = new Submission();
+            submission.setId((long) i);
+            submission.setScore(random.nextDouble());
+            submission.setSubmissionDate(LocalDateTime.now());
+            submission.setFileName("predictions-" + i + ".csv");
+            submission.setFileExtension("csv");
+            submission.setFile(file);
+            submission.setChallengeId(7L);
+            submission.setUser(user);
+            entities.add(submission);
+        }
+        dtos = entities.stream().map(SubmissionDTO::of).toList();
+
+        System.out.printf("%n%d submissions: entities %d bytes, DTOs %d bytes%n", submissions,
+                mapper.writeValueAsBytes(entities).length, mapper.writeValueAsBytes(dtos).length);
+    }
+
+    @Benchmark
+    public byte[] entities() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] dtos() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] dtosWithBlackbird() throws JsonProcessingException {
+        return blackbirdMapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,287 @@
+package com.gs.LoadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gs.Main;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The last minutes before a challenge deadline: participants signing in, uploading predictions and
+ * polling the leaderboard and the hackathon information. Boots the backend on an embedded PostgreSQL
+ * (or {@code loadtest.db-url}), seeds a challenge and its participants, then sends the mix at a
+ * fixed arrival rate and writes throughput, latency percentiles and errors per endpoint as JSON.
+ * <p>
+ * Arrivals are open-loop: a request is due at its scheduled time whether or not earlier ones have
+ * returned, and its latency counts from that time, so a stalled backend shows up in the tail instead
+ * of slowing the generator down. Run with {@code mvn -Ploadtest verify}, settings as
+ * {@code -Dloadtest.*} properties, see {@link Settings}.
+ */
+public class DeadlineStorm {
+
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json()
+            .featuresToEnable(SerializationFeature.INDENT_OUTPUT)
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .build();
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    // a handful of distinct prediction files, so uploads differ without generating one per request
+    private static final int PREDICTION_FILES = 16;
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final SplittableRandom random;
+    private String baseUrl;
+    private long challengeId;
+    private final List<Participant> participants = new ArrayList<>();
+    private final List<byte[]> predictionBodies = new ArrayList<>();
+    private int truthBytes;
+    private int predictionBytes;
+
+    private record Participant(String providerId, String email, long id) {
+    }
+
+    DeadlineStorm(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        EmbeddedPostgres postgres = settings.dbUrl() == null ? EmbeddedPostgres.builder().start() : null;
+        try (ConfigurableApplicationContext backend = postgres != null
+                ? startBackend(postgres.getJdbcUrl("postgres", "postgres"), "postgres", "")
+                : startBackend(settings.dbUrl(), settings.dbUsername(), settings.dbPassword())) {
+            DeadlineStorm storm = new DeadlineStorm(settings);
+            storm.baseUrl = "http://localhost:" + ((WebServerApplicationContext) backend).getWebServer().getPort();
+            storm.seed();
+            Report report = storm.run();
+            Files.createDirectories(settings.report().toAbsolutePath().getParent());
+            MAPPER.writeValue(settings.report().toFile(), report);
+            report.print();
+            System.out.println("Report written to " + settings.report());
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startBackend(String url, String username, String password) throws IOException {
+        // command line arguments, so they win over the application.properties on the classpath
+        return new SpringApplicationBuilder(Main.class).run(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--archive.dir=" + Files.createTempDirectory("deadline-storm-archive"),
+                "--logging.level.root=WARN",
+                "--logging.level.com.gs=INFO");
+    }
+
+    /**
+     * A challenge closing after the run, the hackathon information and every participant signed in
+     * once. None of this is measured.
+     */
+    private void seed() throws IOException, InterruptedException {
+        byte[] truth = SyntheticFiles.truth(settings.rows(), random.split());
+        truthBytes = truth.length;
+        for (int i = 0; i < PREDICTION_FILES; i++) {
+            byte[] predictions = SyntheticFiles.predictions(truth, random.split());
+            predictionBytes = Math.max(predictionBytes, predictions.length);
+            predictionBodies.add(Multipart.file("file", "predictions-" + i + ".csv", "text/csv", predictions));
+        }
+
+        Date deadline = Date.from(Instant.now().plus(settings.warmup()).plus(settings.duration()).plus(Duration.ofMinutes(10)));
+        Map<String, Object> challenge = new LinkedHashMap<>();
+        challenge.put("title", "Deadline storm");
+        challenge.put("description", "Load test challenge");
+        challenge.put("rules", "One upload per request");
+        challenge.put("deadline", deadline);
+        challenge.put("metric", "RMSE");
+        byte[] body = Multipart.parts(
+                Multipart.part("challenge", null, "application/json", MAPPER.writeValueAsBytes(challenge)),
+                Multipart.part("truth", "truth.csv", "text/csv", truth));
+        challengeId = expectOk(send(HttpRequest.newBuilder(uri("/api/challenges"))
+                .header("Content-Type", Multipart.CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)))).get("id").asLong();
+
+        Map<String, Object> information = Map.of("name", "Deadline storm", "description", "Load test",
+                "startDate", new Date(), "endDate", deadline);
+        expectOk(send(json(HttpRequest.newBuilder(uri("/api/hackathon-information")), information)));
+
+        try (ExecutorService signIns = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<JsonNode>> users = new ArrayList<>();
+            for (int i = 0; i < settings.users(); i++) {
+                String providerId = "storm-" + i;
+                String email = providerId + "@example.com";
+                users.add(signIns.submit(() -> expectOk(send(signIn(providerId, email)))));
+            }
+            for (int i = 0; i < users.size(); i++) {
+                participants.add(new Participant("storm-" + i, "storm-" + i + "@example.com",
+                        users.get(i).get().get("id").asLong()));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Signing in the participants failed", e.getCause());
+        }
+        System.out.printf("Seeded challenge %d with %d participants, truth %d bytes, predictions %d bytes%n",
+                challengeId, participants.size(), truthBytes, predictionBytes);
+    }
+
+    private Report run() {
+        Map<Endpoint, Samples> samples = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            samples.put(endpoint, new Samples());
+        }
+        long intervalNanos = 1_000_000_000L / settings.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+
+        System.out.printf("Storm: %d requests/s for %s after a %s warmup%n",
+                settings.rate(), settings.duration(), settings.warmup());
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            long due = start;
+            while (due < end) {
+                LockSupport.parkNanos(due - System.nanoTime());
+                Endpoint endpoint = Endpoint.pick(random.nextInt(Endpoint.TOTAL_WEIGHT));
+                HttpRequest request = request(endpoint);
+                long scheduled = due;
+                Samples target = scheduled >= measureFrom ? samples.get(endpoint) : null;
+                requests.execute(() -> call(request, scheduled, target));
+                // exponential gaps, arrivals of independent participants
+                due += (long) (-Math.log(1 - random.nextDouble()) * intervalNanos);
+            }
+        }
+        long measuredNanos = Math.max(1, Math.min(System.nanoTime(), end) - measureFrom);
+        return Report.of(settings, truthBytes, predictionBytes, measuredNanos, samples);
+    }
+
+    private void call(HttpRequest request, long scheduled, Samples samples) {
+        String outcome;
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            outcome = status < 400 ? null : "HTTP " + status;
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (samples != null) {
+            samples.record(System.nanoTime() - scheduled, outcome);
+        }
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        Participant participant = participants.get(random.nextInt(participants.size()));
+        return switch (endpoint) {
+            case OAUTH_USER -> signIn(participant.providerId(), participant.email()).build();
+            case SUBMISSION -> HttpRequest.newBuilder(uri("/api/submissions?id=" + challengeId + "&userId=" + participant.id()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", Multipart.CONTENT_TYPE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(predictionBodies.get(random.nextInt(predictionBodies.size()))))
+                    .build();
+            case LEADERBOARD -> get("/api/leaderboard/challenge/" + challengeId);
+            case HACKATHON_INFORMATION -> get("/api/hackathon-information");
+            case ACTIVE_CHALLENGES -> get("/api/challenges/active");
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest.Builder signIn(String providerId, String email) {
+        return json(HttpRequest.newBuilder(uri("/api/users/oauth-user")), Map.of("providerId", providerId, "email", email));
+    }
+
+    private HttpRequest.Builder json(HttpRequest.Builder request, Object body) {
+        try {
+            return request.timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode expectOk(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(response.request().uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    /**
+     * The traffic mix, weighted by how often each request type shows up in the last minutes.
+     */
+    enum Endpoint {
+        OAUTH_USER("POST /api/users/oauth-user", 10),
+        SUBMISSION("POST /api/submissions", 25),
+        LEADERBOARD("GET /api/leaderboard/challenge/{id}", 40),
+        HACKATHON_INFORMATION("GET /api/hackathon-information", 15),
+        ACTIVE_CHALLENGES("GET /api/challenges/active", 10);
+
+        static final int TOTAL_WEIGHT = 100;
+
+        final String label;
+        final int weight;
+
+        Endpoint(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+
+        static Endpoint pick(int roll) {
+            for (Endpoint endpoint : values()) {
+                roll -= endpoint.weight;
+                if (roll < 0) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Roll beyond the total weight");
+        }
+    }
+}
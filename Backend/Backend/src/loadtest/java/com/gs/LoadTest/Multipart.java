@@ -0,0 +1,39 @@
+package com.gs.LoadTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * multipart/form-data bodies, built once up front so encoding them costs nothing during the storm.
+ */
+final class Multipart {
+
+    private static final String BOUNDARY = "deadline-storm-boundary";
+    static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+    private Multipart() {
+    }
+
+    static byte[] file(String name, String fileName, String contentType, byte[] content) {
+        return parts(part(name, fileName, contentType, content));
+    }
+
+    static byte[] part(String name, String fileName, String contentType, byte[] content) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream(content.length + 256);
+        String disposition = "form-data; name=\"" + name + "\"" + (fileName != null ? "; filename=\"" + fileName + "\"" : "");
+        part.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: " + disposition
+                + "\r\nContent-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        part.writeBytes(content);
+        part.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        return part.toByteArray();
+    }
+
+    static byte[] parts(byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            body.writeBytes(part);
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.gs.LoadTest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The machine-readable outcome of a run, written as JSON. Requests are those due in the measured
+ * window, throughput counts the successful ones per second of it, and latencies are in milliseconds
+ * from the time a request was due.
+ */
+record Report(Settings settings, int truthBytes, int predictionBytes, double measuredSeconds,
+              long requests, long errors, double throughput, Map<String, EndpointReport> endpoints) {
+
+    record EndpointReport(long requests, long errors, double throughput, double meanMillis, double p50Millis,
+                          double p99Millis, double p999Millis, double maxMillis, Map<String, Integer> errorsByCause) {
+
+        static EndpointReport of(Samples samples, double seconds) {
+            long[] sorted = samples.sorted();
+            Map<String, Integer> errors = samples.errors();
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            long failed = errors.values().stream().mapToLong(Integer::longValue).sum();
+            return new EndpointReport(sorted.length, failed, (sorted.length - failed) / seconds, sorted.length == 0 ? 0 : millis(total / sorted.length),
+                    percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length == 0 ? 0 : millis(sorted[sorted.length - 1]), errors);
+        }
+
+        // nearest rank
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return millis(sorted[Math.max(0, rank - 1)]);
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+
+    static Report of(Settings settings, int truthBytes, int predictionBytes, long measuredNanos,
+                     Map<DeadlineStorm.Endpoint, Samples> samples) {
+        double seconds = measuredNanos / 1e9;
+        Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<DeadlineStorm.Endpoint, Samples> entry : samples.entrySet()) {
+            EndpointReport endpoint = EndpointReport.of(entry.getValue(), seconds);
+            endpoints.put(entry.getKey().label, endpoint);
+            requests += endpoint.requests();
+            errors += endpoint.errors();
+        }
+        return new Report(settings, truthBytes, predictionBytes, seconds, requests, errors, (requests - errors) / seconds, endpoints);
+    }
+
+    void print() {
+        System.out.printf("%n%-40s %9s %7s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        endpoints.forEach((label, endpoint) -> System.out.printf("%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f%n", label,
+                endpoint.requests(), endpoint.errors(), endpoint.throughput(),
+                endpoint.p50Millis(), endpoint.p99Millis(), endpoint.p999Millis()));
+        System.out.printf("%-40s %9d %7d %9.1f%n", "total", requests, errors, throughput);
+    }
+}
@@ -0,0 +1,46 @@
+package com.gs.LoadTest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and failures of one endpoint. Every latency is kept, a storm of a few minutes is at most
+ * a few million longs, so the percentiles are exact.
+ */
+final class Samples {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Integer> errors = new TreeMap<>();
+
+    /**
+     * @param outcome null for a success, otherwise what went wrong, e.g. {@code HTTP 503}
+     */
+    synchronized void record(long latencyNanos, String outcome) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (outcome != null) {
+            errors.merge(outcome, 1, Integer::sum);
+        }
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized Map<String, Integer> errors() {
+        return new TreeMap<>(errors);
+    }
+
+    /**
+     * Latencies in ascending order.
+     */
+    synchronized long[] sorted() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,45 @@
+package com.gs.LoadTest;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties; the defaults are those of the
+ * {@code loadtest} Maven profile.
+ *
+ * @param rate     requests per second, over all endpoints
+ * @param warmup   how long the storm runs before anything is measured
+ * @param duration how long it is measured
+ * @param users    participants, each signed in before the storm
+ * @param rows     rows of the synthetic truth and prediction files, which sets their size
+ * @param seed     seeds the files, the request mix and the arrival times, so runs are repeatable
+ * @param dbUrl    an existing database to run against, the embedded PostgreSQL when null
+ */
+record Settings(int rate, Duration warmup, Duration duration, int users, int rows, long seed,
+                String dbUrl, String dbUsername, @JsonIgnore String dbPassword, Path report) {
+
+    Settings {
+        if (rate < 1 || users < 1 || rows < 1) {
+            throw new IllegalArgumentException("rate, users and rows must be positive");
+        }
+    }
+
+    static Settings fromSystemProperties() {
+        String dbUrl = System.getProperty("loadtest.db-url");
+        return new Settings(
+                Integer.getInteger("loadtest.rate", 200),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s")),
+                Integer.getInteger("loadtest.users", 500),
+                Integer.getInteger("loadtest.rows", 10_000),
+                Long.getLong("loadtest.seed", 42),
+                StringUtils.hasText(dbUrl) ? dbUrl : null,
+                System.getProperty("loadtest.db-username", "postgres"),
+                System.getProperty("loadtest.db-password", "postgres"),
+                Path.of(System.getProperty("loadtest.report", "target/deadline-storm.json")));
+    }
+}
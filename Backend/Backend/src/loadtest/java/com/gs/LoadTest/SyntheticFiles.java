@@ -0,0 +1,40 @@
+package com.gs.LoadTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Truth and prediction CSVs shaped like the real ones: an id and a value column under a header.
+ */
+final class SyntheticFiles {
+
+    private SyntheticFiles() {
+    }
+
+    static byte[] truth(int rows, SplittableRandom random) {
+        StringBuilder csv = new StringBuilder(rows * 24).append("id,value\n");
+        for (int row = 0; row < rows; row++) {
+            csv.append(row).append(',').append(round(random.nextDouble(0, 100))).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The truth with noise on every value, a different amount per file so the leaderboard moves.
+     */
+    static byte[] predictions(byte[] truth, SplittableRandom random) {
+        double noise = random.nextDouble(0.5, 10);
+        String[] lines = new String(truth, StandardCharsets.UTF_8).split("\n");
+        StringBuilder csv = new StringBuilder(truth.length + lines.length * 4).append(lines[0]).append('\n');
+        for (int i = 1; i < lines.length; i++) {
+            int comma = lines[i].indexOf(',');
+            double value = Double.parseDouble(lines[i].substring(comma + 1)) + random.nextGaussian() * noise;
+            csv.append(lines[i], 0, comma + 1).append(round(value)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10_000) / 10_000.0;
+    }
+}
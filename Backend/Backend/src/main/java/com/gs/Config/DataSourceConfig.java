@@ -0,0 +1,81 @@
+package com.gs.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Writes go to the primary ({@code spring.datasource.*}); read-only transactions go to the replica
+ * configured under {@code datasource.replica.*}, with its own {@code datasource.replica.hikari.*} pool
+ * settings. Without a replica URL everything uses the primary.
+ *
+ * <p>The replica is looked up at run time instead of through a bean condition, because AOT processing
+ * would freeze the condition at build time.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties primaryDataSourceProperties) {
+        return primaryDataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource readOnlyDataSource(HikariDataSource primaryPool, Environment environment) {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties replica = binder.bind("datasource.replica", DataSourceProperties.class).orElse(null);
+        if (replica == null || !StringUtils.hasText(replica.getUrl())) {
+            return new ReplicaRoutingDataSource(primaryPool, null);
+        }
+        HikariDataSource replicaPool = replica.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("datasource.replica.hikari", Bindable.ofInstance(replicaPool));
+        if (replicaPool.getPoolName() == null) {
+            replicaPool.setPoolName("replica");
+        }
+        return new ReplicaRoutingDataSource(primaryPool, replicaPool);
+    }
+
+    /**
+     * Connections are fetched lazily, on the first statement, so the read-only flag of the surrounding
+     * transaction is known when the target pool is chosen. Statements and rows are counted per request
+     * on top of that, see {@link QueryCounter}, unless {@code db.metrics.enabled=false}.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryPool, ReplicaRoutingDataSource readOnlyDataSource,
+                                 @Value("${db.metrics.enabled:true}") boolean queryMetrics) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryPool);
+        if (readOnlyDataSource.hasReplica()) {
+            dataSource.setReadOnlyDataSource(readOnlyDataSource);
+        }
+        if (!queryMetrics) {
+            return dataSource;
+        }
+        QueryCounter counter = new QueryCounter();
+        return ProxyDataSourceBuilder.create("counted", dataSource)
+                .listener(counter)
+                .methodListener(counter)
+                .proxyResultSet()
+                .build();
+    }
+}
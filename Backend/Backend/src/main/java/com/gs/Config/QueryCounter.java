@@ -0,0 +1,115 @@
+package com.gs.Config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the JDBC statements, rows and statement time of the current thread while a {@link Stats} is
+ * open on it, see {@link QueryMetricsFilter}. Attached to the data source proxy, so it sees Hibernate and
+ * {@code JdbcTemplate} statements alike; threads without open stats cost a thread-local lookup.
+ */
+public class QueryCounter implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final ThreadLocal<Stats> current = new ThreadLocal<>();
+
+    public static Stats start() {
+        Stats stats = new Stats();
+        current.set(stats);
+        return stats;
+    }
+
+    /**
+     * The stats open on the current thread, null outside a request.
+     */
+    public static Stats current() {
+        return current.get();
+    }
+
+    public static void stop() {
+        current.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.statementStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        Stats stats = current.get();
+        if (stats == null) {
+            return;
+        }
+        stats.nanos += System.nanoTime() - stats.statementStart;
+        stats.statements++;
+        if (!queries.isEmpty()) {
+            stats.executions.merge(queries.get(0).getQuery(), 1, Integer::sum);
+        }
+        // rows a query returns are counted as they are read, see afterMethod
+        if (execution.getResult() instanceof Integer updated) {
+            stats.rows += Math.max(0, updated);
+        } else if (execution.getResult() instanceof int[] batch) {
+            for (int updated : batch) {
+                stats.rows += Math.max(0, updated);
+            }
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext context) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext context) {
+        if (context.getTarget() instanceof ResultSet && Boolean.TRUE.equals(context.getResult())
+                && "next".equals(context.getMethod().getName())) {
+            Stats stats = current.get();
+            if (stats != null) {
+                stats.rows++;
+            }
+        }
+    }
+
+    /**
+     * What one request did on the database. Only touched by the request's own thread.
+     */
+    public static final class Stats {
+
+        private int statements;
+        private long rows;
+        private long nanos;
+        private long statementStart;
+        // SQL -> executions, repeats of one statement are the N+1 pattern
+        private final Map<String, Integer> executions = new HashMap<>();
+
+        public int statements() {
+            return statements;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * The statement executed most often, null when none ran.
+         */
+        public Map.Entry<String, Integer> mostRepeated() {
+            return executions.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+        }
+    }
+}
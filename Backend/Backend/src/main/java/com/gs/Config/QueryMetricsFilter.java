@@ -0,0 +1,96 @@
+package com.gs.Config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database work per request: the statements, rows and statement time {@link QueryCounter} saw while
+ * the request ran, recorded as {@code db.request.*} meters tagged by the controller method that
+ * handled it. A request that runs the same statement more than {@code db.metrics.n-plus-one-threshold}
+ * times is logged, that is almost always a lazy association loaded row by row.
+ */
+@Component
+public class QueryMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryMetricsFilter.class);
+
+    private final MeterRegistry registry;
+    // checked at run time rather than through a bean condition, which AOT processing would freeze
+    private final boolean enabled;
+    private final int nPlusOneThreshold;
+
+    public QueryMetricsFilter(MeterRegistry registry,
+                              @Value("${db.metrics.enabled:true}") boolean enabled,
+                              @Value("${db.metrics.n-plus-one-threshold:20}") int nPlusOneThreshold) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+        QueryCounter.Stats stats = QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCounter.stop();
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+                record(handler, request, stats);
+            }
+        }
+    }
+
+    private void record(HandlerMethod handler, HttpServletRequest request, QueryCounter.Stats stats) {
+        String name = handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+        DistributionSummary.builder("db.request.statements")
+                .description("JDBC statements executed by one request")
+                .tag("handler", name)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.statements());
+        DistributionSummary.builder("db.request.rows")
+                .description("Rows read or written by one request")
+                .baseUnit("rows")
+                .tag("handler", name)
+                .register(registry)
+                .record(stats.rows());
+        Timer.builder("db.request.time")
+                .description("Time one request spent executing JDBC statements")
+                .tag("handler", name)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.nanos(), TimeUnit.NANOSECONDS);
+
+        Map.Entry<String, Integer> repeated = stats.mostRepeated();
+        if (repeated != null && repeated.getValue() > nPlusOneThreshold) {
+            log.warn("{} {} ({}) ran {} statements, {} of them the same: {}", request.getMethod(),
+                    request.getRequestURI(), name, stats.statements(), repeated.getValue(), abbreviate(repeated.getKey()));
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        String line = sql.replaceAll("\\s+", " ").trim();
+        return line.length() > 200 ? line.substring(0, 200) + "..." : line;
+    }
+}
@@ -0,0 +1,44 @@
+package com.gs.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * With {@code db.metrics.headers=true}, responses carry {@code X-DB-Queries} and {@code X-DB-Time}
+ * (milliseconds) for what the request did on the database up to writing its body. Off by default,
+ * the numbers tell a client more about the backend than it needs to know.
+ */
+@ControllerAdvice
+public class QueryMetricsHeaders implements ResponseBodyAdvice<Object> {
+
+    private final boolean enabled;
+
+    public QueryMetricsHeaders(@Value("${db.metrics.headers:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        QueryCounter.Stats stats = QueryCounter.current();
+        if (stats != null) {
+            response.getHeaders().set("X-DB-Queries", Integer.toString(stats.statements()));
+            response.getHeaders().set("X-DB-Time", String.format(Locale.ROOT, "%.3f", stats.nanos() / 1e6));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,93 @@
+package com.gs.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes stickiness: a client that has just written (any non-GET request) is told until when
+ * to read the primary, and while it says so its read-only transactions are served by the primary
+ * instead of a replica that may still lag behind. Disabled with {@code datasource.replica.sticky-window=0}.
+ * <p>
+ * The deadline comes back both as a cookie and in the {@value #HEADER} response header. Browsers that
+ * call cross-origin without credentials, and servers relaying for them, never send the cookie back;
+ * they echo the header on their next requests instead. A deadline further out than one window from now
+ * is not honoured, so a client cannot keep itself on the primary.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Read-Primary-Until";
+
+    private static final String COOKIE = "gs-read-primary-until";
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesFilter(@Value("${datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (stickyWindow.isZero()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean write = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())
+                && !"OPTIONS".equals(request.getMethod());
+        if (write) {
+            String until = Long.toString(now + stickyWindow.toMillis());
+            response.setHeader(HEADER, until);
+            Cookie cookie = new Cookie(COOKIE, until);
+            cookie.setMaxAge((int) Math.max(1, stickyWindow.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        ReplicaRoutingDataSource.forcePrimary(write || readsPrimary(request, now));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.forcePrimary(false);
+        }
+    }
+
+    private boolean readsPrimary(HttpServletRequest request, long now) {
+        if (isSticky(request.getHeader(HEADER), now)) {
+            return true;
+        }
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                return isSticky(cookie.getValue(), now);
+            }
+        }
+        return false;
+    }
+
+    private boolean isSticky(String until, long now) {
+        if (until == null) {
+            return false;
+        }
+        try {
+            long deadline = Long.parseLong(until.strip());
+            return deadline > now && deadline <= now + stickyWindow.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
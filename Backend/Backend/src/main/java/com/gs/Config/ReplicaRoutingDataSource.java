@@ -0,0 +1,67 @@
+package com.gs.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Target of read-only connections: the replica pool, unless the current request has to read its own
+ * writes or no replica is configured, in which case the primary pool.
+ * <p>
+ * Background work reads the primary throughout: the scoring workers, re-scoring jobs, the archiver and
+ * the scheduled leaderboard pushes force it on their threads, and analytics refreshes do not run in
+ * read-only transactions. Only request reads go to the replica, and may lag behind the primary; the
+ * {@link ReadYourWritesFilter} sends a client's reads to the primary for a while after its own writes.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> forcePrimary = new ThreadLocal<>();
+
+    private final HikariDataSource replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primaryPool, HikariDataSource replicaPool) {
+        this.replicaPool = replicaPool;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primaryPool);
+        if (replicaPool != null) {
+            targets.put(REPLICA, replicaPool);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primaryPool);
+        afterPropertiesSet();
+    }
+
+    public boolean hasReplica() {
+        return replicaPool != null;
+    }
+
+    /**
+     * Sends the current thread's read-only transactions to the primary, e.g. right after its own write.
+     */
+    public static void forcePrimary(boolean force) {
+        if (force) {
+            forcePrimary.set(Boolean.TRUE);
+        } else {
+            forcePrimary.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return replicaPool == null || Boolean.TRUE.equals(forcePrimary.get()) ? PRIMARY : REPLICA;
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaPool != null) {
+            replicaPool.close();
+        }
+    }
+}
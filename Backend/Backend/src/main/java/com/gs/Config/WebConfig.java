@@ -13,6 +13,8 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                // read by the frontend and echoed on its next requests, see ReadYourWritesFilter
+                .exposedHeaders(ReadYourWritesFilter.HEADER)
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -0,0 +1,26 @@
+package com.gs.Controllers;
+
+import com.gs.DTO.ChallengeAnalytics;
+import com.gs.Services.ChallengeAnalyticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final ChallengeAnalyticsService challengeAnalyticsService;
+
+    public AnalyticsController(ChallengeAnalyticsService challengeAnalyticsService) {
+        this.challengeAnalyticsService = challengeAnalyticsService;
+    }
+
+    @GetMapping("/challenge/{challengeId}")
+    public ResponseEntity<ChallengeAnalytics> getChallengeAnalytics(@PathVariable Long challengeId) {
+        try {
+            return ResponseEntity.ok(challengeAnalyticsService.getAnalytics(challengeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -1,43 +1,100 @@
 package com.gs.Controllers;
 
+import com.gs.DTO.ChallengeDTO;
+import com.gs.DTO.ChallengeSearchPage;
 import com.gs.Entities.Challenge;
+import com.gs.Services.ChallengeSearchService;
 import com.gs.Services.ChallengeService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/challenges")
 public class ChallengeController {
 
     private final ChallengeService challengeService;
+    private final ChallengeSearchService challengeSearchService;
 
-    public ChallengeController(ChallengeService challengeService) {
+    public ChallengeController(ChallengeService challengeService, ChallengeSearchService challengeSearchService) {
         this.challengeService = challengeService;
+        this.challengeSearchService = challengeSearchService;
     }
 
     @GetMapping
-    public List<Challenge> getAllChallenges() {
+    public List<ChallengeDTO> getAllChallenges() {
         return challengeService.getAllChallenges();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Challenge> getChallengeById(@PathVariable Long id) {
-        return challengeService.getChallengeById(id)
+    public ResponseEntity<ChallengeDTO> getChallengeById(@PathVariable Long id) {
+        return challengeService.getChallengeDtoById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/active")
-    public List<Challenge> getActiveChallenges() {
+    public List<ChallengeDTO> getActiveChallenges() {
         return challengeService.getActiveChallenges(new Date());
     }
 
+    /**
+     * Ranked search over title, description and rules; every word of {@code q} matches as a prefix.
+     */
+    @GetMapping("/search")
+    public ChallengeSearchPage searchChallenges(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "metric", required = false) String metric,
+            @RequestParam(value = "deadlineAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date deadlineAfter,
+            @RequestParam(value = "deadlineBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date deadlineBefore,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return challengeSearchService.search(query, metric, deadlineAfter, deadlineBefore, page, size);
+    }
+
     @PostMapping
-    public Challenge createChallenge(@RequestBody Challenge challenge) {
-        return challengeService.saveChallenge(challenge);
+    public ResponseEntity<?> createChallenge(@RequestBody Challenge challenge) {
+        try {
+            return ResponseEntity.ok(ChallengeDTO.of(challengeService.saveChallenge(challenge)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
+    /**
+     * Takes the challenge as a JSON part and the ground truth as a file part, so the truth file is
+     * neither base64-encoded nor held in memory. The file is bounded by the multipart limit only, it is
+     * kept in large objects, see {@link com.gs.Services.TruthStore}.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> createChallengeWithTruth(@RequestPart("challenge") Challenge challenge,
+                                                      @RequestPart("truth") MultipartFile truth) throws IOException {
+        try {
+            return ResponseEntity.ok(ChallengeDTO.of(challengeService.createChallenge(challenge, truth)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
+    @PutMapping(value = "/{id}/truth", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> replaceTruth(@PathVariable Long id, @RequestPart("truth") MultipartFile truth) throws IOException {
+        try {
+            return ResponseEntity.ok(ChallengeDTO.of(challengeService.replaceTruth(id, truth)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
     }
 
     @DeleteMapping("/{id}")
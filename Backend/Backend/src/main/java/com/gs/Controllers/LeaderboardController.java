@@ -0,0 +1,61 @@
+package com.gs.Controllers;
+
+import com.gs.DTO.Standing;
+import com.gs.DTO.TeamStandingEntry;
+import com.gs.Services.LeaderboardService;
+import com.gs.Services.TeamStandingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+    private final TeamStandingService teamStandingService;
+
+    public LeaderboardController(LeaderboardService leaderboardService, TeamStandingService teamStandingService) {
+        this.leaderboardService = leaderboardService;
+        this.teamStandingService = teamStandingService;
+    }
+
+    @GetMapping("/challenge/{challengeId}")
+    public ResponseEntity<List<Standing>> getStandings(@PathVariable Long challengeId) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getStandings(challengeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/challenge/{challengeId}/private")
+    public ResponseEntity<?> getPrivateStandings(@PathVariable Long challengeId) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getPrivateStandings(challengeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/challenge/{challengeId}/teams")
+    public ResponseEntity<List<TeamStandingEntry>> getTeamStandings(@PathVariable Long challengeId) {
+        try {
+            return ResponseEntity.ok(teamStandingService.getStandings(challengeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/challenge/{challengeId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStandings(@PathVariable Long challengeId) {
+        return leaderboardService.subscribe(challengeId);
+    }
+}
@@ -0,0 +1,48 @@
+package com.gs.Controllers;
+
+import com.gs.DTO.RescoreProgress;
+import com.gs.Services.RescoreService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rescore-jobs")
+public class RescoreJobController {
+
+    private final RescoreService rescoreService;
+
+    public RescoreJobController(RescoreService rescoreService) {
+        this.rescoreService = rescoreService;
+    }
+
+    @PostMapping("/challenge/{challengeId}")
+    public ResponseEntity<?> startJob(@PathVariable Long challengeId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(RescoreProgress.of(rescoreService.startJob(challengeId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RescoreProgress> getJob(@PathVariable Long id) {
+        return rescoreService.getJob(id)
+                .map(RescoreProgress::of)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/challenge/{challengeId}")
+    public List<RescoreProgress> getJobsByChallenge(@PathVariable Long challengeId) {
+        return rescoreService.getJobsByChallengeId(challengeId).stream()
+                .map(RescoreProgress::of)
+                .toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.gs.Controllers;
+
+import com.gs.DTO.ScoringQueueEntry;
+import com.gs.Entities.ScoringJob;
+import com.gs.Services.ScoringQueueService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/scoring-jobs")
+public class ScoringJobController {
+
+    private final ScoringQueueService scoringQueueService;
+
+    public ScoringJobController(ScoringQueueService scoringQueueService) {
+        this.scoringQueueService = scoringQueueService;
+    }
+
+    @GetMapping("/submission/{submissionId}")
+    public ResponseEntity<ScoringJob> getJobBySubmission(@PathVariable Long submissionId) {
+        return scoringQueueService.getJobBySubmissionId(submissionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/dead")
+    public List<ScoringJob> getDeadJobs() {
+        return scoringQueueService.getDeadJobs();
+    }
+
+    @GetMapping("/queue")
+    public List<ScoringQueueEntry> getQueue() {
+        return scoringQueueService.getQueueByUser();
+    }
+
+    @GetMapping("/queue/user/{userId}")
+    public ResponseEntity<ScoringQueueEntry> getQueueOfUser(@PathVariable Long userId) {
+        return scoringQueueService.getQueueOfUser(userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<?> retry(@PathVariable Long id) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(scoringQueueService.retry(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.gs.Controllers;
 
-import com.gs.Entities.Submission;
+import com.gs.DTO.SubmissionDTO;
+import com.gs.DTO.SubmissionUpdate;
 import com.gs.Services.SubmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/submissions")
@@ -20,45 +28,93 @@ public class SubmissionController {
     }
 
     @GetMapping
-    public List<Submission> getAllSubmissions() {
+    public List<SubmissionDTO> getAllSubmissions() {
         return submissionService.getAllSubmissions();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Submission> getSubmissionById(@PathVariable Long id) {
-        return submissionService.getSubmissionById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<SubmissionDTO> getSubmissionById(@PathVariable Long id) {
+        return submissionService.getSubmissionDtoById(id)
+                .map(submission -> ResponseEntity.ok().eTag(ETags.of(submission.version())).body(submission))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/file")
+    public ResponseEntity<byte[]> getSubmissionFile(@PathVariable Long id) {
+        return submissionService.getSubmissionFile(id)
+                .map(file -> ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(file))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/challenge/{challengeId}")
-    public List<Submission> getByChallenge(@PathVariable Long challengeId) {
+    public List<SubmissionDTO> getByChallenge(@PathVariable Long challengeId) {
         return submissionService.getSubmissionsByChallengeId(challengeId);
     }
 
     @GetMapping("/user/{userId}")
-    public List<Submission> getByUser(@PathVariable Long userId) {
+    public List<SubmissionDTO> getByUser(@PathVariable Long userId) {
         return submissionService.getSubmissionsByUserId(userId);
     }
 
     @PostMapping
-    public Submission createSubmission(@RequestParam("file") MultipartFile file, @RequestParam("id") Long challengeId) throws IOException {
-        return submissionService.handleSubmission(file, challengeId);
+    public ResponseEntity<?> createSubmission(@RequestParam("file") MultipartFile file, @RequestParam("id") Long challengeId,
+                                              @RequestParam(value = "userId", required = false) Long userId) throws IOException {
+        try {
+            return ResponseEntity.ok(SubmissionDTO.of(submissionService.handleSubmission(file, challengeId, userId)));
+        } catch (SubmissionService.NotFound e) {
+            return ResponseEntity.notFound().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        } catch (IllegalArgumentException e) {
+            // the challenge exists but cannot take the submission, e.g. its metric is unknown
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Takes the file as the raw request body, so the size limit applies before anything is buffered
+     * and a broken file is rejected while it is still arriving.
+     */
+    @PostMapping(value = "/challenge/{challengeId}", consumes = {"text/csv", "application/octet-stream"})
+    public ResponseEntity<?> streamSubmission(@PathVariable Long challengeId,
+                                              @RequestParam(value = "fileName", required = false) String fileName,
+                                              @RequestParam(value = "userId", required = false) Long userId,
+                                              HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(SubmissionDTO.of(submissionService.handleSubmission(request.getInputStream(),
+                    request.getContentLengthLong(), fileName, challengeId, userId)));
+        } catch (SubmissionService.NotFound e) {
+            return ResponseEntity.notFound().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Edits the score and feedback; fields left out keep their value and the file is never touched.
+     * With an If-Match of the version a judge started from, an edit made in between is a 412 instead
+     * of being overwritten.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchSubmission(@PathVariable Long id, @RequestBody SubmissionUpdate update,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return submissionService.updateSubmission(id, update, ETags.version(ifMatch))
+                    .<ResponseEntity<?>>map(submission ->
+                            ResponseEntity.ok().eTag(ETags.of(submission.version())).body(submission))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error", e.getMessage()));
+        }
     }
 
+    // kept for existing clients, it always had the partial semantics of PATCH
     @PutMapping("/{id}")
-    public ResponseEntity<Submission> updateSubmission(@PathVariable Long id, @RequestBody Submission submission) {
-        return submissionService.getSubmissionById(id)
-                .map(existingSubmission -> {
-                    if (submission.getScore() != null) {
-                        existingSubmission.setScore(submission.getScore());
-                    }
-                    if (submission.getFeedback() != null) {
-                        existingSubmission.setFeedback(submission.getFeedback());
-                    }
-                    return ResponseEntity.ok(submissionService.saveSubmission(existingSubmission));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateSubmission(@PathVariable Long id, @RequestBody SubmissionUpdate update,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return patchSubmission(id, update, ifMatch);
     }
 
     @DeleteMapping("/{id}")
@@ -1,12 +1,17 @@
 package com.gs.Controllers;
 
+import com.gs.DTO.TodoItemDTO;
 import com.gs.Entities.TodoItem;
 import com.gs.Services.TodoItemService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/todos")
@@ -19,48 +24,51 @@ public class TodoItemController {
     }
 
     @GetMapping
-    public List<TodoItem> getAllTodos() {
+    public List<TodoItemDTO> getAllTodos() {
         return todoService.getAllTodos();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TodoItem> getTodoById(@PathVariable Long id) {
+    public ResponseEntity<TodoItemDTO> getTodoById(@PathVariable Long id) {
         return todoService.getTodoById(id)
-                .map(ResponseEntity::ok)
+                .map(todo -> ResponseEntity.ok().eTag(ETags.of(todo.version())).body(todo))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/user/{userId}")
-    public List<TodoItem> getTodosByUser(@PathVariable Long userId) {
+    public List<TodoItemDTO> getTodosByUser(@PathVariable Long userId) {
         return todoService.getTodosByUserId(userId);
     }
 
     @GetMapping("/deadline")
-    public List<TodoItem> getTodosBeforeDeadline(@RequestParam Date date) {
+    public List<TodoItemDTO> getTodosBeforeDeadline(@RequestParam Date date) {
         return todoService.getTodosBeforeDeadline(date);
     }
 
     @PostMapping
-    public TodoItem createTodo(@RequestBody TodoItem todo) {
+    public TodoItemDTO createTodo(@RequestBody TodoItem todo) {
         return todoService.saveTodo(todo);
     }
 
+    // fields left out keep their value; with If-Match, an edit made in between is a 412
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchTodo(@PathVariable Long id, @RequestBody TodoItem todo,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return todoService.updateTodo(id, todo, ETags.version(ifMatch))
+                    .<ResponseEntity<?>>map(updated ->
+                            ResponseEntity.ok().eTag(ETags.of(updated.version())).body(updated))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // kept for existing clients, it always had the partial semantics of PATCH
     @PutMapping("/{id}")
-    public ResponseEntity<TodoItem> updateTodo(@PathVariable Long id, @RequestBody TodoItem todo) {
-        return todoService.getTodoById(id)
-                .map(existingTodo -> {
-                    if (todo.getText() != null) {
-                        existingTodo.setText(todo.getText());
-                    }
-                    if (todo.getDone() != null) {
-                        existingTodo.setDone(todo.getDone());
-                    }
-                    if (todo.getDeadline() != null) {
-                        existingTodo.setDeadline(todo.getDeadline());
-                    }
-                    return ResponseEntity.ok(todoService.saveTodo(existingTodo));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateTodo(@PathVariable Long id, @RequestBody TodoItem todo,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return patchTodo(id, todo, ifMatch);
     }
 
     @DeleteMapping("/{id}")
@@ -1,11 +1,14 @@
 package com.gs.Controllers;
 
 import com.gs.DTO.OAuthUserRequest;
+import com.gs.DTO.UserDTO;
 import com.gs.Entities.User;
 import com.gs.Services.AuthService;
+import com.gs.Services.UserLookupService;
 import com.gs.Services.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
@@ -16,32 +19,49 @@ public class UserController {
 
     private final UserService userService;
     private final AuthService authService;
+    private final UserLookupService userLookupService;
 
-    public UserController(UserService userService, AuthService authService) {
+    public UserController(UserService userService, AuthService authService, UserLookupService userLookupService) {
         this.userService = userService;
         this.authService = authService;
+        this.userLookupService = userLookupService;
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
+    public List<UserDTO> getAllUsers() {
         return userService.getAllUsers();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        return userService.getUserById(id)
+    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
+        return userService.getUserDtoById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Up to {@value UserLookupService#MAX_IDS} users in one call, e.g.
+     * {@code /api/users/batch?ids=3,5,8&fields=id,email,team}. Without {@code fields} every field is
+     * returned, the profile included.
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> getUsersByIds(@RequestParam("ids") List<Long> ids,
+                                           @RequestParam(value = "fields", required = false) List<String> fields) {
+        try {
+            return ResponseEntity.ok(userLookupService.getUsers(ids, fields));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
     @GetMapping("/role/{roleId}")
-    public List<User> getUsersByRole(@PathVariable Long roleId) {
+    public List<UserDTO> getUsersByRole(@PathVariable Long roleId) {
         return userService.getUsersByRoleId(roleId);
     }
 
     @PostMapping
-    public User createUser(@RequestBody User user) {
-        return userService.saveUser(user);
+    public UserDTO createUser(@RequestBody User user) {
+        return UserDTO.of(userService.saveUser(user));
     }
 
     @PostMapping("/oauth-user")
@@ -1,11 +1,14 @@
 package com.gs.Controllers;
 
 import com.gs.DTO.ProfileCompletionRequest;
+import com.gs.DTO.UserProfileDTO;
 import com.gs.Entities.User;
 import com.gs.Entities.UserProfile;
+import com.gs.Services.UserLookupService;
 import com.gs.Services.UserProfileService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
@@ -15,30 +18,42 @@ import java.util.Map;
 public class UserProfileController {
 
     private final UserProfileService profileService;
+    private final UserLookupService userLookupService;
 
-    public UserProfileController(UserProfileService profileService) {
+    public UserProfileController(UserProfileService profileService, UserLookupService userLookupService) {
         this.profileService = profileService;
+        this.userLookupService = userLookupService;
     }
 
     @GetMapping
-    public List<UserProfile> getAllProfiles() {
-        return profileService.getAllProfiles();
+    public List<UserProfileDTO> getAllProfiles() {
+        return profileService.getAllProfiles().stream().map(UserProfileDTO::of).toList();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserProfile> getProfileById(@PathVariable Long id) {
+    public ResponseEntity<UserProfileDTO> getProfileById(@PathVariable Long id) {
         return profileService.getProfileById(id)
-                .map(ResponseEntity::ok)
+                .map(profile -> ResponseEntity.ok(UserProfileDTO.of(profile)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<UserProfile> getProfileByUserId(@PathVariable Long userId) {
+    public ResponseEntity<UserProfileDTO> getProfileByUserId(@PathVariable Long userId) {
         return profileService.getProfileByUserId(userId)
-                .map(ResponseEntity::ok)
+                .map(profile -> ResponseEntity.ok(UserProfileDTO.of(profile)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // the profiles of up to UserLookupService.MAX_IDS users in one call, e.g. /api/profiles/batch?userIds=3,5,8
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProfilesByUserIds(@RequestParam("userIds") List<Long> userIds) {
+        try {
+            return ResponseEntity.ok(userLookupService.getProfilesByUserIds(userIds));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+
     @PostMapping("/complete-profile")
     public ResponseEntity<?> completeProfile(@RequestBody ProfileCompletionRequest request) {
         try {
@@ -64,16 +79,16 @@ public class UserProfileController {
     }
 
     @PostMapping
-    public UserProfile createProfile(@RequestBody UserProfile profile) {
-        return profileService.saveProfile(profile);
+    public UserProfileDTO createProfile(@RequestBody UserProfile profile) {
+        return UserProfileDTO.of(profileService.saveProfile(profile));
     }
 
     @PutMapping("/user/{userId}")
-    public ResponseEntity<UserProfile> updateUserProfile(@PathVariable Long userId, @RequestBody Map<String, String> request) {
+    public ResponseEntity<UserProfileDTO> updateUserProfile(@PathVariable Long userId, @RequestBody Map<String, String> request) {
         try {
             String bio = request.get("bio");
             UserProfile updatedProfile = profileService.createOrUpdateUserProfile(userId, bio);
-            return ResponseEntity.ok(updatedProfile);
+            return ResponseEntity.ok(UserProfileDTO.of(updatedProfile));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -0,0 +1,29 @@
+package com.gs.DTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// score distribution and activity of one challenge, as of computedAt
+public record ChallengeAnalytics(
+        Long challengeId,
+        long submissions,
+        long scoredSubmissions,
+        long participants,
+        long activeTeams,
+        Double minScore,
+        Double maxScore,
+        Double meanScore,
+        // by percentile, e.g. "p50"
+        Map<String, Double> percentiles,
+        List<Bucket> histogram,
+        // date_trunc unit of the periods
+        String period,
+        List<Period> submissionsOverTime,
+        LocalDateTime computedAt
+) {
+    // scores in [from, to), the last bucket includes its upper bound
+    public record Bucket(double from, double to, long count) {}
+
+    public record Period(LocalDateTime start, long submissions, long cumulative) {}
+}
@@ -1,18 +1,28 @@
 package com.gs.DTO;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 
-import java.time.LocalDateTime;
+import com.gs.Entities.Challenge;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class ChallengeDTO {
-    private Long id;
-    private String title;
-    private String description;
-    private String rules;
-    private LocalDateTime deadline;
-    private Long hackathonId; // tylko ID, nie cały obiekt
+import java.util.Date;
+
+// without the ground truth, which never leaves the server
+public record ChallengeDTO(
+        Long id,
+        String title,
+        String description,
+        String rules,
+        Date deadline,
+        String metric,
+        String secondaryMetrics,
+        Double publicFraction,
+        Integer truthColumns,
+        Integer truthRows,
+        Boolean approximateScoring,
+        Long maxUploadBytes
+) {
+    public static ChallengeDTO of(Challenge challenge) {
+        return new ChallengeDTO(challenge.getId(), challenge.getTitle(), challenge.getDescription(),
+                challenge.getRules(), challenge.getDeadline(), challenge.getMetric(), challenge.getSecondaryMetrics(),
+                challenge.getPublicFraction(), challenge.getTruthColumns(), challenge.getTruthRows(),
+                challenge.getApproximateScoring(), challenge.getMaxUploadBytes());
+    }
 }
@@ -0,0 +1,11 @@
+package com.gs.DTO;
+
+import java.util.List;
+
+// one page of search results, best match first
+public record ChallengeSearchPage(
+        List<ChallengeDTO> challenges,
+        int page,
+        int size,
+        long total
+) {}
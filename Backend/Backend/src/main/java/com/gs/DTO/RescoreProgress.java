@@ -0,0 +1,30 @@
+package com.gs.DTO;
+
+import com.gs.Entities.RescoreJob;
+import com.gs.Enums.JobStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public record RescoreProgress(
+        Long id,
+        Long challengeId,
+        JobStatus status,
+        long total,
+        long processed,
+        long failed,
+        Long lastSubmissionId,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        double submissionsPerSecond,
+        String message
+) {
+    public static RescoreProgress of(RescoreJob job) {
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        double seconds = Duration.between(job.getStartedAt(), end).toMillis() / 1000.0;
+        double rate = seconds > 0 ? job.getProcessed() / seconds : 0;
+        return new RescoreProgress(job.getId(), job.getChallengeId(), job.getStatus(), job.getTotal(),
+                job.getProcessed(), job.getFailed(), job.getLastSubmissionId(), job.getStartedAt(),
+                job.getFinishedAt(), rate, job.getMessage());
+    }
+}
@@ -1,13 +1,12 @@
 package com.gs.DTO;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.gs.Entities.Role;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class RoleDTO {
-    private Long id;
-    private String role;
+public record RoleDTO(
+        Long id,
+        String role
+) {
+    public static RoleDTO of(Role role) {
+        return role != null ? new RoleDTO(role.getId(), role.getRole()) : null;
+    }
 }
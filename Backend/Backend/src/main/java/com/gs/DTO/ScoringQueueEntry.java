@@ -0,0 +1,14 @@
+package com.gs.DTO;
+
+/**
+ * One user's share of the scoring queue. Wait times are in seconds: how long the oldest queued job has
+ * been waiting, and the average wait until claimed of jobs started in the last hour (null when none).
+ */
+public record ScoringQueueEntry(
+        Long userId,
+        String team,
+        long queued,
+        long running,
+        double oldestWaitSeconds,
+        Double recentWaitSeconds
+) {}
@@ -0,0 +1,8 @@
+package com.gs.DTO;
+
+public record Standing(
+        int rank,
+        Long userId,
+        Long submissionId,
+        double score
+) {}
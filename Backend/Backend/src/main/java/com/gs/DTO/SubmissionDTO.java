@@ -1,21 +1,37 @@
 package com.gs.DTO;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.gs.Entities.Submission;
+import com.gs.Enums.Metrics;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class SubmissionDTO {
-    private Long id;
-    private Integer score;
-    private String feedback;
-    private LocalDateTime submissionDate;
-    private String fileName;
-    private String fileExtension;
-    private Long challengeId;
-    private Long userId;
+// without the file, see GET /api/submissions/{id}/file
+public record SubmissionDTO(
+        Long id,
+        Double score,
+        String feedback,
+        LocalDateTime submissionDate,
+        String fileName,
+        String fileExtension,
+        Long challengeId,
+        Long userId,
+        // every metric of the challenge, the primary one included
+        Map<Metrics, Double> metricScores,
+        // also the ETag, send it back in If-Match to edit
+        long version
+) {
+    // from the packed column, for query projections
+    public SubmissionDTO(Long id, Double score, String feedback, LocalDateTime submissionDate, String fileName,
+                         String fileExtension, Long challengeId, Long userId, byte[] metricScores, long version) {
+        this(id, score, feedback, submissionDate, fileName, fileExtension, challengeId, userId,
+                Metrics.unpackScores(metricScores), version);
+    }
+
+    public static SubmissionDTO of(Submission submission) {
+        return new SubmissionDTO(submission.getId(), submission.getScore(), submission.getFeedback(),
+                submission.getSubmissionDate(), submission.getFileName(), submission.getFileExtension(),
+                submission.getChallengeId(), submission.getUser() != null ? submission.getUser().getId() : null,
+                submission.getMetricScores(), submission.getVersion());
+    }
 }
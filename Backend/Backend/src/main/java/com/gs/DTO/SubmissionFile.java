@@ -0,0 +1,10 @@
+package com.gs.DTO;
+
+// file is null once archived, the archive columns point into the pack then
+public record SubmissionFile(
+        Long submissionId,
+        byte[] file,
+        String archivePack,
+        Long archiveOffset,
+        Integer archiveLength
+) {}
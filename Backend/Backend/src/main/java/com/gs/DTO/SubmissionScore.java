@@ -0,0 +1,8 @@
+package com.gs.DTO;
+
+public record SubmissionScore(
+        Long submissionId,
+        Long userId,
+        Double score,
+        Double privateScore
+) {}
@@ -0,0 +1,7 @@
+package com.gs.DTO;
+
+// the fields a judge can edit, null leaves a field as it is
+public record SubmissionUpdate(
+        Double score,
+        String feedback
+) {}
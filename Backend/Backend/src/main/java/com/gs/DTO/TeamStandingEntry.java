@@ -0,0 +1,8 @@
+package com.gs.DTO;
+
+public record TeamStandingEntry(
+        int rank,
+        String team,
+        double bestScore,
+        long submissionCount
+) {}
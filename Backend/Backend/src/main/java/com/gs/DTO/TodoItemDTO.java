@@ -0,0 +1,23 @@
+package com.gs.DTO;
+
+import java.util.Date;
+
+public record TodoItemDTO(
+        Long id,
+        String text,
+        Boolean done,
+        Date deadline,
+        Long userId,
+        ChallengeDTO challenge,
+        long version
+) {
+    // a row of TodoItemRepository.DTO, the challenge columns are null without a challenge
+    public TodoItemDTO(Long id, String text, Boolean done, Date deadline, Long userId, long version,
+                       Long challengeId, String title, String description, String rules, Date challengeDeadline,
+                       String metric, String secondaryMetrics, Double publicFraction, Integer truthColumns,
+                       Integer truthRows, Boolean approximateScoring, Long maxUploadBytes) {
+        this(id, text, done, deadline, userId, challengeId == null ? null : new ChallengeDTO(challengeId, title,
+                description, rules, challengeDeadline, metric, secondaryMetrics, publicFraction, truthColumns,
+                truthRows, approximateScoring, maxUploadBytes), version);
+    }
+}
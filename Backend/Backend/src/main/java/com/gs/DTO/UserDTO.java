@@ -1,16 +1,22 @@
 package com.gs.DTO;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-
-public class UserDTO {
-   
-    private String email;
+import com.gs.Entities.User;
 
+// the profile is left out, it has its own endpoint
+public record UserDTO(
+        Long id,
+        String email,
+        RoleDTO role,
+        boolean profileCompleted,
+        String team
+) {
+    // for the projection queries, the role columns come from a left join
+    public UserDTO(Long id, String email, Long roleId, String roleName, boolean profileCompleted, String team) {
+        this(id, email, roleId != null ? new RoleDTO(roleId, roleName) : null, profileCompleted, team);
+    }
 
+    public static UserDTO of(User user) {
+        return new UserDTO(user.getId(), user.getEmail(), RoleDTO.of(user.getRole()), user.isProfileCompleted(),
+                user.getTeam());
+    }
 }
@@ -1,16 +1,15 @@
 package com.gs.DTO;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.gs.Entities.UserProfile;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class UserProfileDTO {
-    private Long id;
-    private String fullName;
-    private String bio;
-    private String skills;
-    private String cvUrl;
+public record UserProfileDTO(
+        Long id,
+        String bio,
+        Long userId
+) {
+    public static UserProfileDTO of(UserProfile profile) {
+        // the id of a lazy user is known without loading it
+        return new UserProfileDTO(profile.getId(), profile.getBio(),
+                profile.getUser() != null ? profile.getUser().getId() : null);
+    }
 }
@@ -1,5 +1,6 @@
 package com.gs.Entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -27,5 +28,39 @@ public class Challenge {
     private Date deadline;
 
     private String metric;
+
+    // comma-separated metrics scored next to the primary one and shown with it, see Metrics.calculateAll
+    private String secondaryMetrics;
+
+    // uploads sent as JSON; a multipart upload goes to the truthFileOid large object instead
     private byte[] groundSourceFile;
+
+    // share of ground-truth rows scored on the public leaderboard, no split when null
+    private Double publicFraction;
+
+    // bitset of the public rows, see Metrics.partitionRows
+    @JsonIgnore
+    private byte[] publicRows;
+
+    // shape of the ground truth, every submission must match it; filled in when the challenge is saved
+    private Integer truthColumns;
+    private Integer truthRows;
+
+    // the parsed truth column, see GroundTruth
+    @JsonIgnore
+    private byte[] truthValues;
+
+    // large objects holding the uploaded truth file and, when it is too large for truthValues, the parsed
+    // truth column; see TruthStore
+    @JsonIgnore
+    private Long truthFileOid;
+    @JsonIgnore
+    private Long truthValuesOid;
+
+    // score with streaming accumulators and the histogram ROC AUC, see Metrics.HistogramAucAccumulator;
+    // exact scoring when null or false
+    private Boolean approximateScoring;
+
+    // upload limit for this challenge, the submission.max-upload-size default when null
+    private Long maxUploadBytes;
 }
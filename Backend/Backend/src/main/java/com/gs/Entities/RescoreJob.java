@@ -0,0 +1,41 @@
+package com.gs.Entities;
+
+import com.gs.Enums.JobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "rescore_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescoreJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long challengeId;
+
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+
+    // checkpoint: every submission up to this id has been re-scored
+    private Long lastSubmissionId;
+
+    private long total;
+    private long processed;
+    private long failed;
+
+    // node running the job and until when; an expired lease lets another node take the job over
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+
+    private String message;
+}
@@ -0,0 +1,55 @@
+package com.gs.Entities;
+
+import com.gs.Enums.ScoringJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "scoring_jobs", indexes = {
+        @Index(name = "idx_scoring_jobs_claim", columnList = "status, available_at"),
+        @Index(name = "idx_scoring_jobs_submission", columnList = "submission_id"),
+        @Index(name = "idx_scoring_jobs_started", columnList = "started_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoringJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long submissionId;
+    private Long challengeId;
+
+    // who the job is scored for, copied from the submission; claims go round-robin between teams, or
+    // users without one, see ScoringJobRepository.claimNext
+    private Long userId;
+    private String team;
+
+    // size of the prediction file, small ones have a lane of their own
+    private Long fileBytes;
+
+    @Enumerated(EnumType.STRING)
+    private ScoringJobStatus status;
+
+    private int attempts;
+
+    // not claimed before this time, pushed back on every retry
+    private LocalDateTime availableAt;
+
+    // node holding the job and until when; an expired lease makes the job claimable again
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    private LocalDateTime heartbeatAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    // when the last attempt was claimed
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
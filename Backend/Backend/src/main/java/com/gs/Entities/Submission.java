@@ -1,5 +1,6 @@
 package com.gs.Entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -18,9 +19,24 @@ public class Submission {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // public leaderboard score
     private Double score;
+
+    // hidden until the challenge deadline
+    @JsonIgnore
+    private Double privateScore;
+
+    // public scores of all the challenge's metrics, see Metrics.packPublicScores
+    @JsonIgnore
+    private byte[] metricScores;
+
     private String feedback;
 
+    // bumped by every edit and compared with If-Match; scoring writes its columns directly and leaves it alone
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime submissionDate;
 
@@ -30,6 +46,14 @@ public class Submission {
     @Lob
     private byte[] file;
 
+    // where the file went once archived, see SubmissionArchiver; file is null then
+    @JsonIgnore
+    private String archivePack;
+    @JsonIgnore
+    private Long archiveOffset;
+    @JsonIgnore
+    private Integer archiveLength;
+
     private Long challengeId;
 
     @ManyToOne
@@ -0,0 +1,23 @@
+package com.gs.Entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "team_standings",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"challenge_id", "team"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStanding {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long challengeId;
+    private String team;
+
+    private Double bestScore;
+    private long submissionCount;
+}
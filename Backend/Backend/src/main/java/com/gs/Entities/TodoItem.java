@@ -2,9 +2,13 @@ package com.gs.Entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.util.Date;
 
+// updates write the changed columns only
 @Entity
+@DynamicUpdate
 @Table(name = "todo_items")
 @Data
 @NoArgsConstructor
@@ -23,7 +27,13 @@ public class TodoItem {
 
     private Long userId;
 
-    @ManyToOne
+    // compared with If-Match
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // not loaded with the item, it carries the ground truth; listings go through TodoItemRepository.DTO
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "challenge_id")
     private Challenge challenge;
 }
@@ -14,6 +14,7 @@ public class User {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String email;
+    @Column(unique = true)
     private String providerId;
     @ManyToOne
     @JoinColumn(name = "role_id")
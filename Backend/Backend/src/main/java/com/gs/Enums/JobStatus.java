@@ -0,0 +1,7 @@
+package com.gs.Enums;
+
+public enum JobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
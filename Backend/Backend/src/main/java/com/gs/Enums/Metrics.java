@@ -2,36 +2,112 @@ package com.gs.Enums;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
 
+// the ordinal is stored in packed metric scores, new metrics go at the end
 public enum Metrics {
-    RMSE("RMSE"),
-    ROC_AUC("ROC_AUC");
+    RMSE("RMSE", false, false, false),
+    ROC_AUC("ROC_AUC", true, true, true),
+    MAE("MAE", false, false, false),
+    R2("R2", true, false, false),
+    LOG_LOSS("LOG_LOSS", false, true, false),
+    // at a threshold of 0.5
+    ACCURACY("ACCURACY", true, true, false),
+    AVERAGE_PRECISION("AVERAGE_PRECISION", true, true, true);
+
+    // enough for an error bound of about 3e-5 on evenly spread probabilities
+    public static final int APPROXIMATE_AUC_BINS = 1 << 14;
+
+    // predictions are clipped to [EPSILON, 1 - EPSILON] so a confident miss costs a large but finite log loss
+    private static final double LOG_LOSS_EPSILON = 1e-15;
 
     private final String metric;
+    private final boolean higherIsBetter;
+    private final boolean labels;
+    private final boolean rankBased;
 
-    Metrics(String metric) {
+    Metrics(String metric, boolean higherIsBetter, boolean labels, boolean rankBased) {
         this.metric = metric;
+        this.higherIsBetter = higherIsBetter;
+        this.labels = labels;
+        this.rankBased = rankBased;
+    }
+
+    public static List<String> higherIsBetterNames() {
+        return Arrays.stream(values()).filter(Metrics::isHigherBetter).map(Metrics::name).toList();
+    }
+
+    public boolean isHigherBetter() {
+        return higherIsBetter;
+    }
+
+    /**
+     * Whether the ground truth holds 0/1 labels rather than values.
+     */
+    public boolean hasLabels() {
+        return labels;
+    }
+
+    /**
+     * Whether the metric is computed from the predictions in sorted order.
+     */
+    public boolean isRankBased() {
+        return rankBased;
+    }
+
+    /**
+     * Orders scores best first.
+     */
+    public int compareScores(double a, double b) {
+        return higherIsBetter ? Double.compare(b, a) : Double.compare(a, b);
     }
 
     public static Metrics getEnumFromMetric(String metric) {
         return Metrics.valueOf(metric.toUpperCase());
     }
 
+    /**
+     * The metrics of a comma-separated list of names, an empty set for null or blank.
+     *
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static EnumSet<Metrics> parseList(String metrics) {
+        EnumSet<Metrics> parsed = EnumSet.noneOf(Metrics.class);
+        if (metrics != null) {
+            for (String name : metrics.split(",")) {
+                if (!name.isBlank()) {
+                    parsed.add(getEnumFromMetric(name.strip()));
+                }
+            }
+        }
+        return parsed;
+    }
+
     public double calculate(byte[] predictionsFile, byte[] truthFile) {
-        List<Double> predictions = loadValuesFromCsv(predictionsFile);
-        List<Double> truth = loadValuesFromCsv(truthFile);
+        return calculate(loadValuesFromCsv(predictionsFile), loadValuesFromCsv(truthFile));
+    }
 
+    public double calculate(List<Double> predictions, List<Double> truth) {
         return switch (this) {
             case RMSE -> calculateRmse(predictions, truth);
             case ROC_AUC -> calculateRocAuc(predictions, truth);
-            default -> throw new IllegalArgumentException("Unsupported metric: " + metric);
+            default -> calculateSplit(predictions, truth, null).publicScore();
         };
     }
 
-    private List<Double> loadValuesFromCsv(byte[] fileBytes) {
+    public static List<Double> loadValuesFromCsv(byte[] fileBytes) {
         List<Double> values = new ArrayList<>();
 
         try (BufferedReader reader = new BufferedReader(
@@ -57,16 +133,22 @@ public enum Metrics {
             }
 
         } catch (Exception e) {
-            throw new RuntimeException("Failed to read CSV file", e);
+            throw new IllegalArgumentException("Failed to read CSV file", e);
         }
 
         return values;
     }
 
-    private double calculateRmse(List<Double> pred, List<Double> truth) {
-        if (pred.size() != truth.size()) {
-            throw new IllegalArgumentException("Prediction and truth sizes do not match");
+    public static int countHeaderColumns(byte[] fileBytes) {
+        int end = 0;
+        while (end < fileBytes.length && fileBytes[end] != '\n' && fileBytes[end] != '\r') {
+            end++;
         }
+        return new String(fileBytes, 0, end).split(",", -1).length;
+    }
+
+    private double calculateRmse(List<Double> pred, List<Double> truth) {
+        checkSizes(pred, truth);
 
         double sum = 0;
         for (int i = 0; i < pred.size(); i++) {
@@ -77,49 +159,570 @@ public enum Metrics {
     }
 
     private double calculateRocAuc(List<Double> pred, List<Double> truth) {
-        if (pred.size() != truth.size()) {
-            throw new IllegalArgumentException("Prediction and truth sizes do not match");
+        return rocAucSplit(pred, truth, null).publicScore();
+    }
+
+    /**
+     * Scores the public and the private rows of a partitioned ground truth in a single pass.
+     * A score is NaN when its partition has no rows, see {@link Split}.
+     */
+    public Split calculateSplit(List<Double> pred, List<Double> truth, BitSet publicRows) {
+        return switch (this) {
+            case RMSE -> rmseSplit(pred, truth, publicRows);
+            case ROC_AUC -> rocAucSplit(pred, truth, publicRows);
+            default -> fusedSplits(EnumSet.of(this), pred, truth, publicRows).get(this);
+        };
+    }
+
+    /**
+     * Scores a submission while streaming its file, without materializing the prediction column.
+     * With {@code approximate} the ROC AUC is taken from fixed-bin histograms, so memory does not grow
+     * with the number of rows; see {@link HistogramAucAccumulator} for the error bound.
+     */
+    public Split calculateSplit(InputStream predictions, List<Double> truth, BitSet publicRows, boolean approximate) {
+        Accumulator publicPart = newAccumulator(approximate);
+        Accumulator privatePart = newAccumulator(approximate);
+        stream(predictions, truth, publicRows, publicPart, privatePart);
+        return new Split(publicPart.count() > 0 ? publicPart.result() : Double.NaN,
+                privatePart.count() > 0 ? privatePart.result() : Double.NaN);
+    }
+
+    /**
+     * Scores several metrics of the same predictions in a single pass over the rows, see
+     * {@link FusedAccumulator}. A single metric takes its own scoring path.
+     */
+    public static Map<Metrics, Split> calculateAll(Set<Metrics> metrics, List<Double> pred, List<Double> truth,
+                                                   BitSet publicRows) {
+        if (metrics.size() == 1) {
+            Metrics metric = metrics.iterator().next();
+            Map<Metrics, Split> splits = new EnumMap<>(Metrics.class);
+            splits.put(metric, metric.calculateSplit(pred, truth, publicRows));
+            return splits;
         }
+        return fusedSplits(metrics, pred, truth, publicRows);
+    }
+
+    /**
+     * Scores several metrics while streaming the file once, the counterpart of
+     * {@link #calculateSplit(InputStream, List, BitSet, boolean)}.
+     */
+    public static Map<Metrics, Split> calculateAll(Set<Metrics> metrics, InputStream predictions, List<Double> truth,
+                                                   BitSet publicRows, boolean approximate) {
+        FusedAccumulator publicPart = new FusedAccumulator(metrics, approximate);
+        FusedAccumulator privatePart = new FusedAccumulator(metrics, approximate);
+        stream(predictions, truth, publicRows, publicPart, privatePart);
+        return splits(publicPart, privatePart);
+    }
+
+    private static Map<Metrics, Split> fusedSplits(Set<Metrics> metrics, List<Double> pred, List<Double> truth,
+                                                   BitSet publicRows) {
+        checkSizes(pred, truth);
 
-        List<Pair> pairs = new ArrayList<>();
+        FusedAccumulator publicPart = new FusedAccumulator(metrics, false);
+        FusedAccumulator privatePart = new FusedAccumulator(metrics, false);
         for (int i = 0; i < pred.size(); i++) {
-            pairs.add(new Pair(pred.get(i), truth.get(i)));
+            FusedAccumulator part = publicRows == null || publicRows.get(i) ? publicPart : privatePart;
+            part.add(pred.get(i), truth.get(i));
+        }
+        return splits(publicPart, privatePart);
+    }
+
+    private static Map<Metrics, Split> splits(FusedAccumulator publicPart, FusedAccumulator privatePart) {
+        Map<Metrics, Double> publicScores = publicPart.count() > 0 ? publicPart.results() : Map.of();
+        Map<Metrics, Double> privateScores = privatePart.count() > 0 ? privatePart.results() : Map.of();
+        Map<Metrics, Split> splits = new EnumMap<>(Metrics.class);
+        for (Metrics metric : publicPart.metrics) {
+            splits.put(metric, new Split(publicScores.getOrDefault(metric, Double.NaN),
+                    privateScores.getOrDefault(metric, Double.NaN)));
+        }
+        return splits;
+    }
+
+    /**
+     * Packs the public score of every metric into one ordinal byte and one double each, the form
+     * stored with a submission. The splits come as an {@link EnumMap}, so the entries are in ordinal order.
+     * Without public rows there are no public scores and nothing is packed.
+     */
+    public static byte[] packPublicScores(Map<Metrics, Split> splits) {
+        int scored = (int) splits.values().stream().filter(split -> split.publicScoreOrNull() != null).count();
+        ByteBuffer packed = ByteBuffer.allocate(scored * (1 + Double.BYTES));
+        splits.forEach((metric, split) -> {
+            if (split.publicScoreOrNull() != null) {
+                packed.put((byte) metric.ordinal()).putDouble(split.publicScore());
+            }
+        });
+        return packed.array();
+    }
+
+    /**
+     * Where the metric's entry starts in the packed scores of these metrics, see {@link #packPublicScores}.
+     */
+    public static int packedOffset(Set<Metrics> metrics, Metrics metric) {
+        int before = (int) metrics.stream().filter(other -> other.ordinal() < metric.ordinal()).count();
+        return before * (1 + Double.BYTES);
+    }
+
+    /**
+     * Reads scores packed by {@link #packPublicScores}, null for null.
+     */
+    public static Map<Metrics, Double> unpackScores(byte[] packed) {
+        if (packed == null) {
+            return null;
         }
+        Metrics[] metrics = values();
+        Map<Metrics, Double> scores = new EnumMap<>(Metrics.class);
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        while (buffer.remaining() >= 1 + Double.BYTES) {
+            scores.put(metrics[buffer.get()], buffer.getDouble());
+        }
+        return scores;
+    }
+
+    private static void stream(InputStream predictions, List<Double> truth, BitSet publicRows,
+                               Accumulator publicPart, Accumulator privatePart) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(predictions))) {
+            // header
+            reader.readLine();
 
-        pairs.sort((a, b) -> Double.compare(b.pred, a.pred));
+            int row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (row == truth.size()) {
+                    throw new IllegalArgumentException("Prediction and truth sizes do not match");
+                }
+                Accumulator part = publicRows == null || publicRows.get(row) ? publicPart : privatePart;
+                part.add(value(line), truth.get(row));
+                row++;
+            }
+            if (row != truth.size()) {
+                throw new IllegalArgumentException("Prediction and truth sizes do not match");
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalArgumentException("Failed to read CSV file", e);
+        }
+    }
 
-        double tp = 0, fp = 0;
-        double prevTp = 0, prevFp = 0;
-        double auc = 0;
+    public Accumulator newAccumulator(boolean approximate) {
+        return switch (this) {
+            case RMSE -> new SquaredErrorAccumulator();
+            case ROC_AUC -> newRankAccumulator(approximate);
+            default -> new FusedAccumulator(EnumSet.of(this), approximate);
+        };
+    }
 
-        long positives = truth.stream().filter(v -> v == 1.0).count();
-        long negatives = truth.size() - positives;
+    private static RankAccumulator newRankAccumulator(boolean approximate) {
+        return approximate ? new HistogramAucAccumulator(APPROXIMATE_AUC_BINS) : new ExactAucAccumulator();
+    }
 
-        if (positives == 0 || negatives == 0) {
+    private static double value(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid CSV format — expected at least 2 columns");
+        }
+        return Double.parseDouble(parts[1]);
+    }
+
+    /**
+     * Assigns each ground-truth row to the public (set bit) or private part of the leaderboard.
+     * The assignment is reproducible from the seed.
+     */
+    public static BitSet partitionRows(int rows, double publicFraction, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BitSet publicRows = new BitSet(rows);
+        for (int i = 0; i < rows; i++) {
+            if (random.nextDouble() < publicFraction) {
+                publicRows.set(i);
+            }
+        }
+        return publicRows;
+    }
+
+    private static Split rmseSplit(List<Double> pred, List<Double> truth, BitSet publicRows) {
+        checkSizes(pred, truth);
+
+        double publicSum = 0, privateSum = 0;
+        int publicCount = 0;
+        for (int i = 0; i < pred.size(); i++) {
+            double diff = pred.get(i) - truth.get(i);
+            if (publicRows == null || publicRows.get(i)) {
+                publicSum += diff * diff;
+                publicCount++;
+            } else {
+                privateSum += diff * diff;
+            }
+        }
+        int privateCount = pred.size() - publicCount;
+        return new Split(publicCount > 0 ? Math.sqrt(publicSum / publicCount) : Double.NaN,
+                privateCount > 0 ? Math.sqrt(privateSum / privateCount) : Double.NaN);
+    }
+
+    /**
+     * Rows are bucketed by partition and label, and every bucket is sorted once; both AUCs are then
+     * counted from the sorted buckets, so the partition adds no sorting work over a single score.
+     */
+    private static Split rocAucSplit(List<Double> pred, List<Double> truth, BitSet publicRows) {
+        checkSizes(pred, truth);
+
+        // public positives, public negatives, private positives, private negatives
+        int[] sizes = new int[4];
+        for (int i = 0; i < pred.size(); i++) {
+            sizes[bucket(i, truth.get(i), publicRows)]++;
+        }
+        double[][] buckets = new double[4][];
+        for (int b = 0; b < 4; b++) {
+            buckets[b] = new double[sizes[b]];
+        }
+        int[] fill = new int[4];
+        for (int i = 0; i < pred.size(); i++) {
+            int b = bucket(i, truth.get(i), publicRows);
+            buckets[b][fill[b]++] = pred.get(i);
+        }
+        for (double[] bucket : buckets) {
+            Arrays.sort(bucket);
+        }
+
+        boolean hasPublic = sizes[0] + sizes[1] > 0;
+        boolean hasPrivate = sizes[2] + sizes[3] > 0;
+        return new Split(hasPublic ? rocAuc(buckets[0], buckets[1]) : Double.NaN,
+                hasPrivate ? rocAuc(buckets[2], buckets[3]) : Double.NaN);
+    }
+
+    private static int bucket(int row, double label, BitSet publicRows) {
+        boolean isPublic = publicRows == null || publicRows.get(row);
+        return (isPublic ? 0 : 2) + (label == 1.0 ? 0 : 1);
+    }
+
+    /**
+     * Probability that a positive outranks a negative, ties counting half, from ascending arrays.
+     */
+    private static double rocAuc(double[] positives, double[] negatives) {
+        if (positives.length == 0 || negatives.length == 0) {
             return 0.5;
         }
+        double wins = 0;
+        int below = 0, notAbove = 0;
+        for (double p : positives) {
+            while (below < negatives.length && negatives[below] < p) below++;
+            if (notAbove < below) notAbove = below;
+            while (notAbove < negatives.length && negatives[notAbove] <= p) notAbove++;
+            wins += below + (notAbove - below) / 2.0;
+        }
+        return wins / ((double) positives.length * negatives.length);
+    }
+
+    /**
+     * Area under the precision-recall curve as the mean precision at each positive, from ascending
+     * arrays. Tied scores form one threshold.
+     */
+    private static double averagePrecision(double[] positives, double[] negatives) {
+        if (positives.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        long truePositives = 0, falsePositives = 0;
+        int p = positives.length - 1, n = negatives.length - 1;
+        while (p >= 0) {
+            double threshold = n >= 0 ? Math.max(positives[p], negatives[n]) : positives[p];
+            int recalled = 0;
+            while (p >= 0 && positives[p] == threshold) {
+                p--;
+                recalled++;
+            }
+            while (n >= 0 && negatives[n] == threshold) {
+                n--;
+                falsePositives++;
+            }
+            truePositives += recalled;
+            sum += recalled * (double) truePositives / (truePositives + falsePositives);
+        }
+        return sum / positives.length;
+    }
+
+    private static void checkSizes(List<Double> pred, List<Double> truth) {
+        if (pred.size() != truth.size()) {
+            throw new IllegalArgumentException("Prediction and truth sizes do not match");
+        }
+    }
 
-        for (Pair p : pairs) {
-            if (p.truth == 1.0) tp++;
-            else fp++;
+    /**
+     * Consumes (prediction, truth) pairs one at a time.
+     */
+    public interface Accumulator {
+        void add(double prediction, double truth);
+
+        long count();
+
+        double result();
+    }
+
+    /**
+     * Keeps the scores of both classes for the rank-based metrics; {@link #result()} is the ROC AUC.
+     */
+    public interface RankAccumulator extends Accumulator {
+        double averagePrecision();
+    }
 
-            if (fp != prevFp) {
-                auc += (fp - prevFp) * ((tp + prevTp) / 2.0);
-                prevTp = tp;
-                prevFp = fp;
+    /**
+     * RMSE from a running sum of squares, plus Welford's running mean and variance of the signed error
+     * for the bias and spread of the predictions. Constant memory.
+     */
+    public static final class SquaredErrorAccumulator implements Accumulator {
+        private long count;
+        private double sumOfSquares;
+        private double meanError;
+        private double m2;
+
+        @Override
+        public void add(double prediction, double truth) {
+            double error = prediction - truth;
+            count++;
+            sumOfSquares += error * error;
+            double delta = error - meanError;
+            meanError += delta / count;
+            m2 += delta * (error - meanError);
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public double result() {
+            return Math.sqrt(sumOfSquares / count);
+        }
+
+        public double meanError() {
+            return meanError;
+        }
+
+        public double errorVariance() {
+            return count > 0 ? m2 / count : Double.NaN;
+        }
+    }
+
+    /**
+     * Exact ROC AUC. Keeps the scores of each class in primitive arrays, a third of the footprint of
+     * a {@code List<Double>}, and counts them with the same kernel as the list-based scoring. The
+     * arrays are sorted once, on the first result, and every rank-based metric reads them from there.
+     */
+    public static final class ExactAucAccumulator implements RankAccumulator {
+        private double[] positives = new double[1024];
+        private double[] negatives = new double[1024];
+        private int positiveCount;
+        private int negativeCount;
+        private boolean sorted;
+
+        @Override
+        public void add(double prediction, double truth) {
+            if (truth == 1.0) {
+                if (positiveCount == positives.length) positives = Arrays.copyOf(positives, positiveCount * 2);
+                positives[positiveCount++] = prediction;
+            } else {
+                if (negativeCount == negatives.length) negatives = Arrays.copyOf(negatives, negativeCount * 2);
+                negatives[negativeCount++] = prediction;
             }
         }
 
-        return auc / (positives * negatives);
+        @Override
+        public long count() {
+            return (long) positiveCount + negativeCount;
+        }
+
+        @Override
+        public double result() {
+            sort();
+            return rocAuc(positives, negatives);
+        }
+
+        @Override
+        public double averagePrecision() {
+            sort();
+            return Metrics.averagePrecision(positives, negatives);
+        }
+
+        private void sort() {
+            if (!sorted) {
+                positives = Arrays.copyOf(positives, positiveCount);
+                negatives = Arrays.copyOf(negatives, negativeCount);
+                Arrays.sort(positives);
+                Arrays.sort(negatives);
+                sorted = true;
+            }
+        }
     }
 
-    private static class Pair {
-        double pred;
-        double truth;
+    /**
+     * Approximate ROC AUC from per-class histograms of the scores over [0, 1], in memory that depends
+     * only on the number of bins. Scores outside the range are clamped into the edge bins.
+     * <p>
+     * Pairs that fall into different bins are ordered exactly; pairs sharing a bin are counted as ties.
+     * The result is therefore off by at most {@link #errorBound()}, i.e. half the share of
+     * positive/negative pairs that share a bin: {@code sum(pos[b] * neg[b]) / (2 * P * N)}. For scores
+     * spread evenly over [0, 1] that is about {@code 1 / (2 * bins)}.
+     */
+    public static final class HistogramAucAccumulator implements RankAccumulator {
+        private final long[] positives;
+        private final long[] negatives;
+        private long positiveCount;
+        private long negativeCount;
+
+        public HistogramAucAccumulator(int bins) {
+            this.positives = new long[bins];
+            this.negatives = new long[bins];
+        }
+
+        @Override
+        public void add(double prediction, double truth) {
+            int bin = (int) (Math.min(Math.max(prediction, 0.0), 1.0) * (positives.length - 1) + 0.5);
+            if (truth == 1.0) {
+                positives[bin]++;
+                positiveCount++;
+            } else {
+                negatives[bin]++;
+                negativeCount++;
+            }
+        }
+
+        @Override
+        public long count() {
+            return positiveCount + negativeCount;
+        }
+
+        @Override
+        public double result() {
+            if (positiveCount == 0 || negativeCount == 0) {
+                return 0.5;
+            }
+            double wins = 0;
+            long negativesBelow = 0;
+            for (int b = 0; b < positives.length; b++) {
+                wins += positives[b] * (negativesBelow + negatives[b] / 2.0);
+                negativesBelow += negatives[b];
+            }
+            return wins / ((double) positiveCount * negativeCount);
+        }
+
+        // every bin is one threshold, from the top
+        @Override
+        public double averagePrecision() {
+            if (positiveCount == 0) {
+                return 0;
+            }
+            double sum = 0;
+            long truePositives = 0, falsePositives = 0;
+            for (int b = positives.length - 1; b >= 0; b--) {
+                truePositives += positives[b];
+                falsePositives += negatives[b];
+                if (positives[b] > 0) {
+                    sum += positives[b] * (double) truePositives / (truePositives + falsePositives);
+                }
+            }
+            return sum / positiveCount;
+        }
+
+        public double errorBound() {
+            if (positiveCount == 0 || negativeCount == 0) {
+                return 0;
+            }
+            double shared = 0;
+            for (int b = 0; b < positives.length; b++) {
+                shared += (double) positives[b] * negatives[b];
+            }
+            return shared / (2.0 * positiveCount * negativeCount);
+        }
+    }
+
+    /**
+     * Several metrics from one pass over the rows. Every row updates a handful of running sums that
+     * the error and label metrics are all read from, and the rank-based metrics share one
+     * {@link RankAccumulator}, so they sort the scores once between them. {@link #result()} is the
+     * first of the metrics.
+     */
+    public static final class FusedAccumulator implements Accumulator {
+        private final Set<Metrics> metrics;
+        private final boolean logLoss;
+        private final RankAccumulator ranks;
+
+        private long count;
+        private double sumOfSquares;
+        private double sumOfAbsolutes;
+        private double sumOfLogLosses;
+        private long correct;
+        // Welford's running mean and variance of the truth, for R2
+        private double meanTruth;
+        private double truthM2;
+
+        public FusedAccumulator(Set<Metrics> metrics, boolean approximate) {
+            this.metrics = EnumSet.copyOf(metrics);
+            this.logLoss = metrics.contains(LOG_LOSS);
+            this.ranks = metrics.stream().anyMatch(Metrics::isRankBased) ? newRankAccumulator(approximate) : null;
+        }
+
+        @Override
+        public void add(double prediction, double truth) {
+            double error = prediction - truth;
+            count++;
+            sumOfSquares += error * error;
+            sumOfAbsolutes += Math.abs(error);
+            double delta = truth - meanTruth;
+            meanTruth += delta / count;
+            truthM2 += delta * (truth - meanTruth);
+            if ((prediction >= 0.5) == (truth == 1.0)) {
+                correct++;
+            }
+            if (logLoss) {
+                double p = Math.min(Math.max(prediction, LOG_LOSS_EPSILON), 1 - LOG_LOSS_EPSILON);
+                sumOfLogLosses -= truth * Math.log(p) + (1 - truth) * Math.log(1 - p);
+            }
+            if (ranks != null) {
+                ranks.add(prediction, truth);
+            }
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public double result() {
+            return result(metrics.iterator().next());
+        }
+
+        public Map<Metrics, Double> results() {
+            Map<Metrics, Double> results = new EnumMap<>(Metrics.class);
+            for (Metrics metric : metrics) {
+                results.put(metric, result(metric));
+            }
+            return results;
+        }
+
+        private double result(Metrics metric) {
+            return switch (metric) {
+                case RMSE -> Math.sqrt(sumOfSquares / count);
+                case MAE -> sumOfAbsolutes / count;
+                // a constant truth explains nothing, so only an exact match scores
+                case R2 -> truthM2 > 0 ? 1 - sumOfSquares / truthM2 : (sumOfSquares == 0 ? 1 : 0);
+                case LOG_LOSS -> sumOfLogLosses / count;
+                case ACCURACY -> (double) correct / count;
+                case ROC_AUC -> ranks.result();
+                case AVERAGE_PRECISION -> ranks.averagePrecision();
+            };
+        }
+    }
+
+    /**
+     * A score is NaN when its partition has no rows: a challenge without a split has no private rows,
+     * and a small truth may have no public ones. NaN is never stored, it is written as null.
+     */
+    public record Split(double publicScore, double privateScore) {
+        public Double publicScoreOrNull() {
+            return Double.isNaN(publicScore) ? null : publicScore;
+        }
 
-        Pair(double pred, double truth) {
-            this.pred = pred;
-            this.truth = truth;
+        public Double privateScoreOrNull() {
+            return Double.isNaN(privateScore) ? null : privateScore;
         }
     }
 }
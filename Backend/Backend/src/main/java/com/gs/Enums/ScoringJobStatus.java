@@ -0,0 +1,8 @@
+package com.gs.Enums;
+
+public enum ScoringJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    DEAD
+}
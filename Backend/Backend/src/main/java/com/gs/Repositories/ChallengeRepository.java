@@ -1,13 +1,38 @@
 package com.gs.Repositories;
 
+import com.gs.DTO.ChallengeDTO;
 import com.gs.Entities.Challenge;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Date;
+import java.util.Optional;
 
 @Repository
 public interface ChallengeRepository extends JpaRepository<Challenge, Long> {
-    List<Challenge> findByDeadlineAfter(Date date);
+    // response rows, the ground truth columns are not read
+    String DTO = "select new com.gs.DTO.ChallengeDTO(c.id, c.title, c.description, c.rules, c.deadline, c.metric, " +
+            "c.secondaryMetrics, c.publicFraction, c.truthColumns, c.truthRows, c.approximateScoring, c.maxUploadBytes) from Challenge c ";
+
+    @Query(DTO)
+    List<ChallengeDTO> findAllDtos();
+
+    @Query(DTO + "where c.id = :id")
+    Optional<ChallengeDTO> findDtoById(@Param("id") Long id);
+
+    @Query(DTO + "where c.deadline > :date")
+    List<ChallengeDTO> findDtosByDeadlineAfter(@Param("date") Date date);
+
+    /**
+     * An unmanaged copy that can be cached; the raw truth file is only read when it was never parsed.
+     */
+    @Query("select new com.gs.Entities.Challenge(c.id, c.title, c.description, c.rules, c.deadline, c.metric, " +
+            "c.secondaryMetrics, case when c.truthValues is null and c.truthValuesOid is null then c.groundSourceFile end, " +
+            "c.publicFraction, c.publicRows, c.truthColumns, c.truthRows, c.truthValues, c.truthFileOid, " +
+            "c.truthValuesOid, c.approximateScoring, c.maxUploadBytes) " +
+            "from Challenge c where c.id = :id")
+    Optional<Challenge> findDetachedById(@Param("id") Long id);
 }
@@ -0,0 +1,78 @@
+package com.gs.Repositories;
+
+import com.gs.Entities.RescoreJob;
+import com.gs.Enums.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface RescoreJobRepository extends JpaRepository<RescoreJob, Long> {
+    List<RescoreJob> findByStatus(JobStatus status);
+    List<RescoreJob> findByChallengeIdOrderByIdDesc(Long challengeId);
+    boolean existsByChallengeIdAndStatus(Long challengeId, JobStatus status);
+
+    // running jobs no node holds a live lease on: not started yet, or of a node that stopped or died
+    @Query(value = """
+            SELECT * FROM rescore_jobs
+            WHERE status = 'RUNNING' AND (lease_expires_at IS NULL OR lease_expires_at < LOCALTIMESTAMP)
+            ORDER BY id
+            """, nativeQuery = true)
+    List<RescoreJob> findUnleased();
+
+    /**
+     * Takes the running job unless another node holds a live lease on it; returns 0 when one does.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE rescore_jobs SET
+                lease_owner = :owner,
+                lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds)
+            WHERE id = :id AND status = 'RUNNING'
+              AND (lease_owner IS NULL OR lease_owner = :owner OR lease_expires_at < LOCALTIMESTAMP)
+            """, nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE rescore_jobs SET lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds)
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds);
+
+    // written with the scores of the chunk; 0 when the lease was lost, the chunk is rolled back then
+    @Modifying
+    @Query(value = """
+            UPDATE rescore_jobs SET
+                last_submission_id = :lastSubmissionId,
+                processed = :processed,
+                failed = :failed,
+                updated_at = LOCALTIMESTAMP,
+                lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds)
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner, @Param("lastSubmissionId") Long lastSubmissionId,
+                   @Param("processed") long processed, @Param("failed") long failed,
+                   @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE rescore_jobs SET
+                status = :status,
+                message = :message,
+                finished_at = LOCALTIMESTAMP,
+                updated_at = LOCALTIMESTAMP,
+                lease_owner = NULL
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") String status,
+               @Param("message") String message);
+}
@@ -0,0 +1,135 @@
+package com.gs.Repositories;
+
+import com.gs.Entities.ScoringJob;
+import com.gs.Enums.ScoringJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScoringJobRepository extends JpaRepository<ScoringJob, Long> {
+
+    List<ScoringJob> findByStatusOrderByIdDesc(ScoringJobStatus status);
+
+    Optional<ScoringJob> findFirstBySubmissionIdOrderByIdDesc(Long submissionId);
+
+    /**
+     * Claims the next available job, or one whose lease has expired, round-robin between teams (users
+     * without a team count as a team of one): of the jobs first in line for their team, the one whose
+     * team was served longest ago is taken. Users with {@code userCap} running jobs are passed over, and
+     * only files up to {@code maxBytes} are considered. Rows locked by other nodes are skipped, so
+     * concurrent workers never wait on each other.
+     */
+    @Transactional
+    @Query(value = """
+            WITH served AS (
+                SELECT coalesce(team, 'user-' || user_id, 'anonymous') AS share, max(started_at) AS last_started
+                FROM scoring_jobs
+                WHERE started_at > LOCALTIMESTAMP - INTERVAL '1 hour'
+                GROUP BY 1
+            ), running AS (
+                SELECT user_id, count(*) AS jobs
+                FROM scoring_jobs
+                WHERE status = 'RUNNING' AND lease_expires_at >= LOCALTIMESTAMP
+                GROUP BY user_id
+            ), candidates AS (
+                SELECT j.id, j.available_at, s.last_started,
+                       row_number() OVER (PARTITION BY coalesce(j.team, 'user-' || j.user_id, 'anonymous')
+                                          ORDER BY j.available_at, j.id) AS turn
+                FROM scoring_jobs j
+                LEFT JOIN served s ON s.share = coalesce(j.team, 'user-' || j.user_id, 'anonymous')
+                LEFT JOIN running r ON r.user_id = j.user_id
+                WHERE ((j.status = 'QUEUED' AND j.available_at <= LOCALTIMESTAMP)
+                    OR (j.status = 'RUNNING' AND j.lease_expires_at < LOCALTIMESTAMP))
+                  AND coalesce(j.file_bytes, 0) <= :maxBytes
+                  AND coalesce(r.jobs, 0) < :userCap
+                ORDER BY turn, s.last_started NULLS FIRST, j.available_at, j.id
+                LIMIT 32
+            )
+            UPDATE scoring_jobs SET
+                status = 'RUNNING',
+                attempts = attempts + 1,
+                lease_owner = :owner,
+                lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds),
+                heartbeat_at = LOCALTIMESTAMP,
+                started_at = LOCALTIMESTAMP
+            WHERE id = (
+                SELECT j.id FROM scoring_jobs j JOIN candidates c ON c.id = j.id
+                WHERE (j.status = 'QUEUED' AND j.available_at <= LOCALTIMESTAMP)
+                   OR (j.status = 'RUNNING' AND j.lease_expires_at < LOCALTIMESTAMP)
+                ORDER BY c.turn, c.last_started NULLS FIRST, c.available_at, c.id
+                LIMIT 1
+                FOR UPDATE OF j SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<ScoringJob> claimNext(@Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds,
+                                   @Param("maxBytes") long maxBytes, @Param("userCap") int userCap);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE scoring_jobs SET
+                lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds),
+                heartbeat_at = LOCALTIMESTAMP
+            WHERE id IN (:ids) AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                  @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Query(value = """
+            UPDATE scoring_jobs SET status = 'DONE', finished_at = LOCALTIMESTAMP, lease_owner = NULL
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int complete(@Param("id") Long id, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE scoring_jobs SET
+                status = 'QUEUED',
+                available_at = LOCALTIMESTAMP + make_interval(secs => :delaySeconds),
+                lease_owner = NULL,
+                last_error = :error
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int retryLater(@Param("id") Long id, @Param("owner") String owner,
+                   @Param("delaySeconds") double delaySeconds, @Param("error") String error);
+
+    /**
+     * Hands a claimed job back without counting the attempt, e.g. when this node has no memory for it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE scoring_jobs SET
+                status = 'QUEUED',
+                attempts = attempts - 1,
+                available_at = LOCALTIMESTAMP + make_interval(secs => :delaySeconds),
+                lease_owner = NULL
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int release(@Param("id") Long id, @Param("owner") String owner, @Param("delaySeconds") double delaySeconds);
+
+    @Modifying
+    @Query(value = """
+            UPDATE scoring_jobs SET status = 'DEAD', finished_at = LOCALTIMESTAMP, lease_owner = NULL, last_error = :error
+            WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int deadLetter(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE scoring_jobs SET status = 'QUEUED', attempts = 0, available_at = LOCALTIMESTAMP, finished_at = NULL
+            WHERE id = :id AND status = 'DEAD'
+            """, nativeQuery = true)
+    int requeue(@Param("id") Long id);
+}
@@ -1,11 +1,21 @@
 package com.gs.Repositories;
 
+import com.gs.DTO.SubmissionDTO;
+import com.gs.DTO.SubmissionFile;
+import com.gs.DTO.SubmissionScore;
 import com.gs.Entities.Submission;
+import com.gs.Entities.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 @Repository
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
 
@@ -15,4 +25,85 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     // jeśli chcesz też po challenge
     List<Submission> findByChallengeId(Long challengeId);
 
+    // response rows, the file blob is not read and the user not loaded
+    String DTO = "select new com.gs.DTO.SubmissionDTO(s.id, s.score, s.feedback, s.submissionDate, s.fileName, " +
+            "s.fileExtension, s.challengeId, s.user.id, s.metricScores, s.version) from Submission s ";
+
+    @Query(DTO)
+    List<SubmissionDTO> findAllDtos();
+
+    @Query(DTO + "where s.id = :id")
+    Optional<SubmissionDTO> findDtoById(@Param("id") Long id);
+
+    @Query(DTO + "where s.challengeId = :challengeId")
+    List<SubmissionDTO> findDtosByChallengeId(@Param("challengeId") Long challengeId);
+
+    @Query(DTO + "where s.user.id = :userId")
+    List<SubmissionDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    // scores only, without loading the file blobs
+    @Query("select new com.gs.DTO.SubmissionScore(s.id, s.user.id, s.score, s.privateScore) from Submission s " +
+            "where s.challengeId = :challengeId and s.score is not null")
+    List<SubmissionScore> findScoresByChallengeId(@Param("challengeId") Long challengeId);
+
+    long countByChallengeId(Long challengeId);
+
+    // keyset page of ids, ordered by id; the files are read one by one with findFileById
+    @Query("select s.id from Submission s where s.challengeId = :challengeId and s.id > :afterId order by s.id")
+    List<Long> findIdsByChallengeIdAfter(@Param("challengeId") Long challengeId, @Param("afterId") Long afterId,
+                                         Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.gs.DTO.SubmissionFile(s.id, s.file, s.archivePack, s.archiveOffset, s.archiveLength) " +
+            "from Submission s where s.id = :id")
+    Optional<SubmissionFile> findFileById(@Param("id") Long id);
+
+    @Query("select distinct s.challengeId from Submission s, Challenge c " +
+            "where c.id = s.challengeId and c.deadline < :now and s.file is not null")
+    List<Long> findChallengeIdsWithUnarchivedFiles(@Param("now") Date now);
+
+    // ids only, the files are read one by one; rows another node is archiving are skipped, not waited on
+    @Query(value = """
+            SELECT id FROM submissions WHERE challenge_id = :challengeId AND file IS NOT NULL
+            ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockUnarchivedIds(@Param("challengeId") Long challengeId, @Param("limit") int limit);
+
+    @Query("select s.user from Submission s where s.id = :id")
+    Optional<User> findUserById(@Param("id") Long id);
+
+    // score columns only, the file blob is neither read nor rewritten
+    @Modifying
+    @Query("update Submission s set s.score = :score, s.privateScore = :privateScore, " +
+            "s.metricScores = :metricScores where s.id = :id")
+    int updateScores(@Param("id") Long id, @Param("score") Double score, @Param("privateScore") Double privateScore,
+                     @Param("metricScores") byte[] metricScores);
+
+    @Query("select s.challengeId from Submission s where s.id = :id")
+    Optional<Long> findChallengeIdById(@Param("id") Long id);
+
+    // an edit, the file is neither read nor rewritten; fields left null keep their value, and with a
+    // version the row is only changed if it still has it. A new score also goes into the primary metric's
+    // entry of metric_scores, found at offset with the metric's ordinal; scores packed for another set of
+    // metrics are cleared instead, until a re-score fills them in again
+    @Modifying
+    @Query(value = """
+            UPDATE submissions SET
+                score = coalesce(CAST(:score AS float8), score),
+                metric_scores = CASE
+                    WHEN CAST(:score AS float8) IS NULL THEN metric_scores
+                    WHEN length(metric_scores) >= :offset + 9 AND get_byte(metric_scores, :offset) = :ordinal
+                        THEN overlay(metric_scores PLACING float8send(CAST(:score AS float8)) FROM :offset + 2 FOR 8)
+                END,
+                feedback = coalesce(CAST(:feedback AS text), feedback),
+                version = version + 1
+            WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = :version)
+            """, nativeQuery = true)
+    int patch(@Param("id") Long id, @Param("score") Double score, @Param("feedback") String feedback,
+              @Param("version") Long version, @Param("offset") int offset, @Param("ordinal") int ordinal);
+
+    @Modifying
+    @Query("update Submission s set s.feedback = :feedback where s.id = :id")
+    int updateFeedback(@Param("id") Long id, @Param("feedback") String feedback);
+
 }
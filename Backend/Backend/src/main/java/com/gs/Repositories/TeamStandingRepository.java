@@ -0,0 +1,80 @@
+package com.gs.Repositories;
+
+import com.gs.Entities.TeamStanding;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TeamStandingRepository extends JpaRepository<TeamStanding, Long> {
+
+    List<TeamStanding> findByChallengeId(Long challengeId);
+
+    /**
+     * Folds one newly scored submission into its team's row.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO team_standings (challenge_id, team, best_score, submission_count)
+            VALUES (:challengeId, :team, :score, 1)
+            ON CONFLICT (challenge_id, team) DO UPDATE SET
+                submission_count = team_standings.submission_count + 1,
+                best_score = CASE
+                    WHEN team_standings.best_score IS NULL THEN EXCLUDED.best_score
+                    WHEN :higherIsBetter THEN GREATEST(team_standings.best_score, EXCLUDED.best_score)
+                    ELSE LEAST(team_standings.best_score, EXCLUDED.best_score)
+                END
+            """, nativeQuery = true)
+    void recordScore(@Param("challengeId") Long challengeId, @Param("team") String team,
+                     @Param("score") double score, @Param("higherIsBetter") boolean higherIsBetter);
+
+    @Modifying
+    @Query(value = "DELETE FROM team_standings WHERE team = :team", nativeQuery = true)
+    void deleteByTeam(@Param("team") String team);
+
+    @Modifying
+    @Query(value = "DELETE FROM team_standings WHERE challenge_id = :challengeId", nativeQuery = true)
+    void deleteByChallenge(@Param("challengeId") Long challengeId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO team_standings (challenge_id, team, best_score, submission_count)
+            SELECT s.challenge_id, u.team,
+                   CASE WHEN upper(c.metric) IN (:higherIsBetter) THEN MAX(s.score) ELSE MIN(s.score) END,
+                   COUNT(*)
+            FROM submissions s
+            JOIN users u ON u.id = s.user_id
+            JOIN challenges c ON c.id = s.challenge_id
+            WHERE u.team = :team AND s.score IS NOT NULL
+            GROUP BY s.challenge_id, u.team, c.metric
+            ON CONFLICT (challenge_id, team) DO UPDATE SET
+                best_score = EXCLUDED.best_score,
+                submission_count = EXCLUDED.submission_count
+            """, nativeQuery = true)
+    void aggregateTeam(@Param("team") String team, @Param("higherIsBetter") Collection<String> higherIsBetter);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO team_standings (challenge_id, team, best_score, submission_count)
+            SELECT s.challenge_id, u.team,
+                   CASE WHEN upper(c.metric) IN (:higherIsBetter) THEN MAX(s.score) ELSE MIN(s.score) END,
+                   COUNT(*)
+            FROM submissions s
+            JOIN users u ON u.id = s.user_id
+            JOIN challenges c ON c.id = s.challenge_id
+            WHERE s.challenge_id = :challengeId AND u.team IS NOT NULL AND s.score IS NOT NULL
+            GROUP BY s.challenge_id, u.team, c.metric
+            ON CONFLICT (challenge_id, team) DO UPDATE SET
+                best_score = EXCLUDED.best_score,
+                submission_count = EXCLUDED.submission_count
+            """, nativeQuery = true)
+    void aggregateChallenge(@Param("challengeId") Long challengeId,
+                            @Param("higherIsBetter") Collection<String> higherIsBetter);
+}
@@ -1,14 +1,36 @@
 package com.gs.Repositories;
 
+import com.gs.DTO.TodoItemDTO;
 import com.gs.Entities.TodoItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Date;
+import java.util.Optional;
 
 @Repository
 public interface TodoItemRepository extends JpaRepository<TodoItem, Long> {
     List<TodoItem> findByUserId(Long userId);
     List<TodoItem> findByDeadlineBefore(Date date);
+
+    // response rows with the challenge joined in, its ground truth columns are not read
+    String DTO = "select new com.gs.DTO.TodoItemDTO(t.id, t.text, t.done, t.deadline, t.userId, t.version, " +
+            "c.id, c.title, c.description, c.rules, c.deadline, c.metric, c.secondaryMetrics, c.publicFraction, " +
+            "c.truthColumns, c.truthRows, c.approximateScoring, c.maxUploadBytes) " +
+            "from TodoItem t left join t.challenge c ";
+
+    @Query(DTO)
+    List<TodoItemDTO> findAllDtos();
+
+    @Query(DTO + "where t.id = :id")
+    Optional<TodoItemDTO> findDtoById(@Param("id") Long id);
+
+    @Query(DTO + "where t.userId = :userId")
+    List<TodoItemDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    @Query(DTO + "where t.deadline < :date")
+    List<TodoItemDTO> findDtosByDeadlineBefore(@Param("date") Date date);
 }
@@ -1,8 +1,12 @@
 package com.gs.Repositories;
 
+import com.gs.DTO.UserDTO;
 import com.gs.Entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,7 +14,41 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
-    List<User> findByRoleId(Long roleId);
+
+    // response rows, without touching the profile side of the one-to-one, which Hibernate would load per user
+    String DTO = "select new com.gs.DTO.UserDTO(u.id, u.email, r.id, r.role, coalesce(u.isProfileCompleted, false), " +
+            "u.team) from User u left join u.role r ";
+
+    @Query(DTO)
+    List<UserDTO> findAllDtos();
+
+    @Query(DTO + "where u.id = :id")
+    Optional<UserDTO> findDtoById(@Param("id") Long id);
+
+    @Query(DTO + "where r.id = :roleId")
+    List<UserDTO> findDtosByRoleId(@Param("roleId") Long roleId);
 
     Optional<User> findByProviderId(String providerId);
+
+    /**
+     * Returns the existing row for the provider ID, or inserts the OAuth user, in a single statement; an
+     * existing row is not written to. Returns nothing when the email already belongs to a user from a
+     * different provider, and when a concurrent sign-in of the same user inserted the row first.
+     * Needs the unique index of {@code db/users-provider-id.sql}.
+     */
+    @Transactional
+    @Query(value = """
+            WITH existing AS (SELECT * FROM users WHERE provider_id = :providerId),
+            inserted AS (
+                INSERT INTO users (provider_id, email, is_profile_completed)
+                SELECT :providerId, :email, false
+                WHERE NOT EXISTS (SELECT 1 FROM existing)
+                  AND NOT EXISTS (SELECT 1 FROM users WHERE email = :email)
+                ON CONFLICT (provider_id) DO NOTHING
+                RETURNING *)
+            SELECT * FROM existing
+            UNION ALL
+            SELECT * FROM inserted
+            """, nativeQuery = true)
+    Optional<User> upsertOAuthUser(@Param("providerId") String providerId, @Param("email") String email);
 }
@@ -0,0 +1,95 @@
+package com.gs.Services;
+
+import com.gs.DTO.SubmissionFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only pack files of archived submission files. Every entry is a self-contained gzip member,
+ * located by the (pack, offset, length) stored on its submission row. Packs live under
+ * {@code archive.dir}, which has to be shared by all nodes that serve submissions.
+ */
+@Component
+public class ArchiveStore {
+
+    private final Path directory;
+
+    public ArchiveStore(@Value("${archive.dir:archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    public record Entry(long offset, int length) {
+    }
+
+    /**
+     * Appends the files to the pack and forces them to disk before returning their positions, so a
+     * row is never pointed at bytes that could still be lost.
+     */
+    public List<Entry> append(String pack, List<byte[]> files) throws IOException {
+        Files.createDirectories(directory);
+        List<Entry> entries = new ArrayList<>(files.size());
+        try (FileChannel channel = FileChannel.open(directory.resolve(pack),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long offset = channel.size();
+            for (byte[] file : files) {
+                ByteBuffer compressed = ByteBuffer.wrap(compress(file));
+                int length = compressed.remaining();
+                while (compressed.hasRemaining()) {
+                    channel.write(compressed);
+                }
+                entries.add(new Entry(offset, length));
+                offset += length;
+            }
+            channel.force(false);
+        }
+        return entries;
+    }
+
+    public byte[] read(String pack, long offset, int length) {
+        try (FileChannel channel = FileChannel.open(directory.resolve(pack), StandardOpenOption.READ)) {
+            ByteBuffer compressed = ByteBuffer.allocate(length);
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, offset + compressed.position()) < 0) {
+                    throw new IOException("Pack " + pack + " ends before offset " + (offset + length));
+                }
+            }
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array()))) {
+                return in.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived file from " + pack, e);
+        }
+    }
+
+    /**
+     * The file's bytes, from the row if it is still there and from its pack otherwise.
+     */
+    public byte[] contents(SubmissionFile submission) {
+        if (submission.file() != null || submission.archivePack() == null) {
+            return submission.file();
+        }
+        return read(submission.archivePack(), submission.archiveOffset(), submission.archiveLength());
+    }
+
+    private static byte[] compress(byte[] file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, file.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(file);
+        }
+        return out.toByteArray();
+    }
+}
@@ -3,24 +3,89 @@ package com.gs.Services;
 
 import com.gs.Entities.User;
 import com.gs.Repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Resolves OAuth sign-ins. On PostgreSQL {@code db/users-provider-id.sql} runs on startup, adding the
+ * unique index the sign-in upsert depends on.
+ */
 @Service
 @Transactional
-public class AuthService {
+public class AuthService implements ApplicationRunner {
 
-    private final UserRepository userRepository;
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
 
-    public AuthService(UserRepository userRepository) {
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationBus invalidationBus;
+    private final long cacheTtlNanos;
+    private final int cacheMaxSize;
+
+    // providerId -> user, lets returning users sign in without touching the database
+    private final Map<String, CachedUser> oauthUserCache = new ConcurrentHashMap<>();
+    // bumped by every eviction, so a user loaded before one is not cached after it
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AuthService(UserRepository userRepository,
+                       JdbcTemplate jdbcTemplate,
+                       InvalidationBus invalidationBus,
+                       @Value("${auth.oauth-user-cache.ttl:5m}") Duration cacheTtl,
+                       @Value("${auth.oauth-user-cache.max-size:10000}") int cacheMaxSize) {
         this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.cacheMaxSize = cacheMaxSize;
+        invalidationBus.subscribe(InvalidationBus.USER, new InvalidationBus.Listener() {
+            @Override
+            public void evict(long userId) {
+                evictions.incrementAndGet();
+                oauthUserCache.values().removeIf(cached -> cached.user().getId() == userId);
+            }
+
+            @Override
+            public void evictAll() {
+                evictions.incrementAndGet();
+                oauthUserCache.clear();
+            }
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void run(ApplicationArguments args) throws IOException {
+        if (!isPostgres()) {
+            return;
+        }
+        jdbcTemplate.execute(new ClassPathResource("db/users-provider-id.sql").getContentAsString(StandardCharsets.UTF_8));
+        log.info("Unique index on users.provider_id in place");
     }
 
 
+    /**
+     * Resolves the user behind an OAuth sign-in. A cache hit costs no database access,
+     * a miss is a single upsert statement.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public User processOAuthUser(String providerId, String email) {
 
         // Validate required parameters
@@ -31,54 +96,41 @@ public class AuthService {
             throw new IllegalArgumentException("Email cannot be null or empty");
         }
 
-        // Check if user already exists by provider ID
-        Optional<User> existingUser = userRepository.findByProviderId(providerId);
-
-        if (existingUser.isPresent()) {
-            // Update existing user
-            return updateExistingOAuthUser(existingUser.get(), email);
-        } else {
-            // Check if email is already registered (prevent account conflicts)
-            Optional<User> userByEmail = userRepository.findByEmail(email);
-            if (userByEmail.isPresent()) {
-                throw new IllegalStateException("Email already registered with different provider: " + email);
-            }
-
-            // Create new user
-            return createNewOAuthUser(providerId, email);
+        long now = System.nanoTime();
+        CachedUser cached = oauthUserCache.get(providerId);
+        if (cached != null && now - cached.loadedAt() < cacheTtlNanos) {
+            return cached.user();
         }
-    }
-
-    private User updateExistingOAuthUser(User user, String email) {
 
-        boolean hasChanges = false;
-
-
-
-        User savedUser = userRepository.save(user);
-
-        if (hasChanges) {
-            System.out.println("Updated OAuth user profile: " + savedUser.getEmail());
-        } else {
-            System.out.println("Updated last login for OAuth user: " + savedUser.getEmail());
+        long evictionsBefore = evictions.get();
+        // Creates the user or returns the existing one; nothing comes back when the email is already
+        // registered with a different provider, or when a concurrent sign-in inserted the row first,
+        // which the second attempt then finds
+        User user = userRepository.upsertOAuthUser(providerId, email)
+                .or(() -> userRepository.upsertOAuthUser(providerId, email))
+                .orElseThrow(() -> new IllegalStateException("Email already registered with different provider: " + email));
+
+        if (evictions.get() == evictionsBefore) {
+            if (oauthUserCache.size() >= cacheMaxSize) {
+                oauthUserCache.clear();
+            }
+            CachedUser entry = new CachedUser(user, now);
+            oauthUserCache.put(providerId, entry);
+            if (evictions.get() != evictionsBefore) {
+                // evicted between the check and the put
+                oauthUserCache.remove(providerId, entry);
+            }
         }
 
-        return savedUser;
+        log.debug("Signed in OAuth user {}", user.getId());
+        return user;
     }
 
     /**
-     * Creates a new OAuth user in the database.
+     * Drops the cached sign-in entry of a user whose row has changed, on every node.
      */
-    private User createNewOAuthUser(String providerId, String email) {
-
-        User newUser = new User();
-        newUser.setProviderId(providerId);
-        newUser.setEmail(email);
-
-        User savedUser = userRepository.save(newUser);
-        System.out.println("Created new OAuth user: " + savedUser.getEmail());
-
-        return savedUser;
+    public void evictCachedUser(Long userId) {
+        invalidationBus.publish(InvalidationBus.USER, userId);
     }
 
 
@@ -104,4 +156,12 @@ public class AuthService {
         }
         return userRepository.findByEmail(email);
     }
-}
\ No newline at end of file
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    private record CachedUser(User user, long loadedAt) {
+    }
+}
@@ -0,0 +1,272 @@
+package com.gs.Services;
+
+import com.gs.DTO.ChallengeAnalytics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Score distribution and activity of a challenge for the organizer dashboard. Everything is aggregated
+ * in the database, over the indexes {@code db/submission-analytics.sql} adds on PostgreSQL, and cached
+ * per challenge on each node.
+ * <p>
+ * A cached entry is marked stale when scores of its challenge change, here or on another node through
+ * the {@link InvalidationBus}, and refreshed on the next request at most once per
+ * {@code analytics.refresh-interval}; requests in between get the cached figures. A refresh recounts
+ * only the latest period of the submissions over time, the whole series is rebuilt once per
+ * {@code analytics.rebuild-interval}. Scores that are not finite are left out of the distribution.
+ * Refreshes read the primary: a lagging replica would cache figures from before the change that made
+ * them stale, and keep them until the next one.
+ */
+@Service
+public class ChallengeAnalyticsService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ChallengeAnalyticsService.class);
+
+    private static final Double[] PERCENTILES = {0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+    private static final Set<String> PERIODS = Set.of("minute", "hour", "day", "week");
+
+    private static final String SUMMARY = """
+            SELECT count(*) AS submissions, count(s.score) AS scored, count(DISTINCT s.user_id) AS participants,
+                   min(s.score) AS min_score, max(s.score) AS max_score, avg(s.score) AS mean_score,
+                   percentile_cont(?::float8[]) WITHIN GROUP (ORDER BY s.score) AS percentiles
+              FROM (SELECT user_id, CASE WHEN score > '-Infinity' AND score < 'Infinity' THEN score END AS score
+                      FROM submissions WHERE challenge_id = ?) s""";
+
+    // the maximum falls into bucket n + 1 of width_bucket, it is counted with the last one
+    private static final String HISTOGRAM = """
+            SELECT least(width_bucket(score, ?, ?, ?), ?) AS bucket, count(*) AS count
+              FROM submissions
+             WHERE challenge_id = ? AND score > '-Infinity' AND score < 'Infinity'
+             GROUP BY 1 ORDER BY 1""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChallengeService challengeService;
+    private final int histogramBuckets;
+    private final String period;
+    private final String timeline;
+    private final String timelineSince;
+    private final long refreshIntervalNanos;
+    private final long rebuildIntervalNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public ChallengeAnalyticsService(JdbcTemplate jdbcTemplate,
+                                     ChallengeService challengeService,
+                                     InvalidationBus invalidationBus,
+                                     @Value("${analytics.histogram-buckets:20}") int histogramBuckets,
+                                     @Value("${analytics.period:hour}") String period,
+                                     @Value("${analytics.refresh-interval:10s}") Duration refreshInterval,
+                                     @Value("${analytics.rebuild-interval:1h}") Duration rebuildInterval) {
+        if (!PERIODS.contains(period)) {
+            throw new IllegalArgumentException("analytics.period must be one of " + PERIODS + ", not " + period);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.challengeService = challengeService;
+        this.histogramBuckets = Math.max(histogramBuckets, 1);
+        this.period = period;
+        // the unit is one of PERIODS, so it can be part of the statement
+        String start = "date_trunc('" + period + "', submission_date)";
+        String select = "SELECT " + start + " AS start, count(*) AS submissions, "
+                + "? + sum(count(*)) OVER (ORDER BY " + start + ") AS cumulative "
+                + "FROM submissions WHERE challenge_id = ? AND submission_date ";
+        this.timeline = select + "IS NOT NULL GROUP BY 1 ORDER BY 1";
+        this.timelineSince = select + ">= ? GROUP BY 1 ORDER BY 1";
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.rebuildIntervalNanos = rebuildInterval.toNanos();
+
+        invalidationBus.subscribe(InvalidationBus.LEADERBOARD, new InvalidationBus.Listener() {
+            @Override
+            public void evict(long challengeId) {
+                onScoresChanged(challengeId);
+            }
+
+            @Override
+            public void evictAll() {
+                entries.values().forEach(entry -> entry.stale = true);
+            }
+        });
+        invalidationBus.subscribe(InvalidationBus.CHALLENGE, new InvalidationBus.Listener() {
+            @Override
+            public void evict(long challengeId) {
+                entries.remove(challengeId);
+            }
+
+            @Override
+            public void evictAll() {
+                entries.clear();
+            }
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!isPostgres()) {
+            return;
+        }
+        jdbcTemplate.execute(new ClassPathResource("db/submission-analytics.sql").getContentAsString(StandardCharsets.UTF_8));
+        log.info("Submission analytics indexes in place");
+    }
+
+    /**
+     * The figures of the challenge, from the cache unless they are stale and were last refreshed more
+     * than {@code analytics.refresh-interval} ago.
+     *
+     * @throws IllegalArgumentException if there is no such challenge
+     */
+    // not a read-only transaction, which would send the refresh to the replica
+    public ChallengeAnalytics getAnalytics(Long challengeId) {
+        challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        Entry entry = entries.computeIfAbsent(challengeId, id -> new Entry());
+        if (entry.snapshot == null || entry.stale && System.nanoTime() - entry.refreshedAt >= refreshIntervalNanos) {
+            synchronized (entry) {
+                long now = System.nanoTime();
+                if (entry.snapshot == null || entry.stale && now - entry.refreshedAt >= refreshIntervalNanos) {
+                    refresh(challengeId, entry, now);
+                }
+            }
+        }
+        return entry.snapshot;
+    }
+
+    /**
+     * Marks the cached figures of the challenge stale, after a submission or a score change.
+     */
+    public void onScoresChanged(Long challengeId) {
+        Entry entry = entries.get(challengeId);
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    private void refresh(Long challengeId, Entry entry, long now) {
+        // cleared first, so a score landing during the refresh marks the entry again
+        entry.stale = false;
+        try {
+            if (entry.periods == null || now - entry.rebuiltAt >= rebuildIntervalNanos) {
+                entry.periods = new TreeMap<>();
+                entry.rebuiltAt = now;
+            }
+            updatePeriods(challengeId, entry.periods);
+            entry.snapshot = compute(challengeId, List.copyOf(entry.periods.values()));
+            entry.refreshedAt = now;
+        } catch (RuntimeException e) {
+            // the series may be half updated
+            entry.periods = null;
+            entry.stale = true;
+            throw e;
+        }
+    }
+
+    // recounts the last known period and everything after it
+    private void updatePeriods(Long challengeId, NavigableMap<LocalDateTime, ChallengeAnalytics.Period> periods) {
+        LocalDateTime from = periods.isEmpty() ? null : periods.lastKey();
+        long before = 0;
+        if (from != null) {
+            Map.Entry<LocalDateTime, ChallengeAnalytics.Period> previous = periods.lowerEntry(from);
+            before = previous != null ? previous.getValue().cumulative() : 0;
+            periods.tailMap(from, true).clear();
+        }
+        RowCallbackHandler add = rs -> {
+            LocalDateTime start = rs.getTimestamp("start").toLocalDateTime();
+            periods.put(start, new ChallengeAnalytics.Period(start, rs.getLong("submissions"), rs.getLong("cumulative")));
+        };
+        if (from == null) {
+            jdbcTemplate.query(timeline, add, before, challengeId);
+        } else {
+            jdbcTemplate.query(timelineSince, add, before, challengeId, Timestamp.valueOf(from));
+        }
+    }
+
+    private ChallengeAnalytics compute(Long challengeId, List<ChallengeAnalytics.Period> periods) {
+        Summary summary = jdbcTemplate.queryForObject(SUMMARY, (rs, row) -> new Summary(rs.getLong("submissions"),
+                rs.getLong("scored"), rs.getLong("participants"), nullableDouble(rs, "min_score"),
+                nullableDouble(rs, "max_score"), nullableDouble(rs, "mean_score"),
+                percentiles(rs.getArray("percentiles"))), (Object) PERCENTILES, challengeId);
+        Long teams = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM team_standings WHERE challenge_id = ?", Long.class, challengeId);
+        return new ChallengeAnalytics(challengeId, summary.submissions(), summary.scored(), summary.participants(),
+                teams != null ? teams : 0, summary.min(), summary.max(), summary.mean(), summary.percentiles(),
+                histogram(challengeId, summary.min(), summary.max(), summary.scored()), period, periods,
+                LocalDateTime.now());
+    }
+
+    private List<ChallengeAnalytics.Bucket> histogram(Long challengeId, Double min, Double max, long scored) {
+        if (scored == 0) {
+            return List.of();
+        }
+        if (min.equals(max)) {
+            // width_bucket needs a range
+            return List.of(new ChallengeAnalytics.Bucket(min, max, scored));
+        }
+        double width = (max - min) / histogramBuckets;
+        long[] counts = new long[histogramBuckets];
+        jdbcTemplate.query(HISTOGRAM, rs -> {
+            counts[rs.getInt("bucket") - 1] = rs.getLong("count");
+        }, min, max, histogramBuckets, histogramBuckets, challengeId);
+
+        List<ChallengeAnalytics.Bucket> buckets = new ArrayList<>(histogramBuckets);
+        for (int i = 0; i < histogramBuckets; i++) {
+            double to = i == histogramBuckets - 1 ? max : min + width * (i + 1);
+            buckets.add(new ChallengeAnalytics.Bucket(min + width * i, to, counts[i]));
+        }
+        return buckets;
+    }
+
+    private static Map<String, Double> percentiles(Array values) throws SQLException {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        Double[] computed = values != null ? (Double[]) values.getArray() : null;
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put("p" + Math.round(PERCENTILES[i] * 100), computed != null ? computed[i] : null);
+        }
+        return percentiles;
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    private record Summary(long submissions, long scored, long participants, Double min, Double max, Double mean,
+                           Map<String, Double> percentiles) {
+    }
+
+    private static final class Entry {
+        volatile ChallengeAnalytics snapshot;
+        volatile boolean stale;
+        volatile long refreshedAt;
+        // submissions per period, only touched while holding the entry
+        NavigableMap<LocalDateTime, ChallengeAnalytics.Period> periods;
+        long rebuiltAt;
+    }
+}
@@ -0,0 +1,149 @@
+package com.gs.Services;
+
+import com.gs.DTO.ChallengeDTO;
+import com.gs.DTO.ChallengeSearchPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches challenges by the words of their title, description and rules. On PostgreSQL the search
+ * runs against the indexed tsvector column {@code db/challenge-search.sql} adds on startup; other
+ * databases fall back to substring matching, which is fine for development data.
+ */
+@Service
+public class ChallengeSearchService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ChallengeSearchService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // letters and digits only, so user input can never break the tsquery syntax
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // everything but the ground truth
+    private static final String COLUMNS = "id, title, description, rules, deadline, metric, secondary_metrics, "
+            + "public_fraction, truth_columns, truth_rows, approximate_scoring, max_upload_bytes";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean indexed;
+
+    public ChallengeSearchService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!isPostgres()) {
+            return;
+        }
+        jdbcTemplate.execute(new ClassPathResource("db/challenge-search.sql").getContentAsString(StandardCharsets.UTF_8));
+        indexed = true;
+        log.info("Challenge search index ready");
+    }
+
+    /**
+     * One page of the challenges matching every word of the query, each word as a prefix, best match
+     * first. Without a query the filtered challenges come back by deadline.
+     *
+     * @param metric        only challenges scored with this metric, any when null
+     * @param deadlineAfter only challenges whose deadline is after this, any when null
+     * @param deadlineBefore only challenges whose deadline is before this, any when null
+     */
+    @Transactional(readOnly = true)
+    public ChallengeSearchPage search(String query, String metric, Date deadlineAfter, Date deadlineBefore,
+                                      int page, int size) {
+        page = Math.max(page, 0);
+        size = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        List<String> terms = terms(query);
+
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        String order = " ORDER BY deadline, id";
+        String tsQuery = null;
+        if (!terms.isEmpty() && indexed) {
+            tsQuery = String.join(" & ", terms.stream().map(term -> term + ":*").toList());
+            where.append(" AND search_vector @@ to_tsquery('simple', ?)");
+            params.add(tsQuery);
+            order = " ORDER BY ts_rank_cd(search_vector, to_tsquery('simple', ?)) DESC, deadline, id";
+        } else {
+            for (String term : terms) {
+                where.append(" AND lower(concat(title, ' ', description, ' ', rules)) LIKE ?");
+                params.add("%" + term + "%");
+            }
+        }
+        if (metric != null && !metric.isBlank()) {
+            where.append(" AND upper(metric) = upper(?)");
+            params.add(metric);
+        }
+        if (deadlineAfter != null) {
+            where.append(" AND deadline > ?");
+            params.add(new Timestamp(deadlineAfter.getTime()));
+        }
+        if (deadlineBefore != null) {
+            where.append(" AND deadline < ?");
+            params.add(new Timestamp(deadlineBefore.getTime()));
+        }
+
+        Long total = jdbcTemplate.queryForObject("SELECT count(*) FROM challenges" + where, Long.class,
+                params.toArray());
+        if (total == null || total <= (long) page * size) {
+            return new ChallengeSearchPage(List.of(), page, size, total != null ? total : 0);
+        }
+        List<Object> pageParams = new ArrayList<>(params);
+        if (tsQuery != null) {
+            pageParams.add(tsQuery);
+        }
+        pageParams.add(size);
+        pageParams.add((long) page * size);
+        List<ChallengeDTO> challenges = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM challenges" + where + order + " LIMIT ? OFFSET ?",
+                ChallengeSearchService::challenge, pageParams.toArray());
+        return new ChallengeSearchPage(challenges, page, size, total);
+    }
+
+    private static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query != null) {
+            Matcher matcher = TERM.matcher(query.toLowerCase(Locale.ROOT));
+            while (matcher.find()) {
+                terms.add(matcher.group());
+            }
+        }
+        return terms;
+    }
+
+    private static ChallengeDTO challenge(ResultSet rs, int row) throws SQLException {
+        Timestamp deadline = rs.getTimestamp("deadline");
+        return new ChallengeDTO(rs.getLong("id"), rs.getString("title"), rs.getString("description"),
+                rs.getString("rules"), deadline != null ? new Date(deadline.getTime()) : null, rs.getString("metric"),
+                rs.getString("secondary_metrics"),
+                rs.getObject("public_fraction", Double.class), rs.getObject("truth_columns", Integer.class),
+                rs.getObject("truth_rows", Integer.class), rs.getObject("approximate_scoring", Boolean.class),
+                rs.getObject("max_upload_bytes", Long.class));
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+}
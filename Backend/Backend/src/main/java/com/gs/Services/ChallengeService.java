@@ -1,39 +1,255 @@
 package com.gs.Services;
 
+import com.gs.DTO.ChallengeDTO;
 import com.gs.Entities.Challenge;
+import com.gs.Enums.Metrics;
 import com.gs.Repositories.ChallengeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ChallengeService {
 
     private final ChallengeRepository challengeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SubmissionPartitions submissionPartitions;
+    private final InvalidationBus invalidationBus;
+    private final TruthStore truthStore;
 
-    public ChallengeService(ChallengeRepository challengeRepository) {
+    // the text fields and the rest of a cached challenge, on top of its binary columns
+    private static final long CHALLENGE_BASE_BYTES = 4 * 1024;
+
+    // read for every submission scored, changed by organizers only; bounded by the size of the truth
+    // columns it holds, which the scoring memory budget does not count
+    private final ClusterCache<Challenge> challenges;
+
+    public ChallengeService(ChallengeRepository challengeRepository,
+                            TransactionTemplate transactionTemplate, SubmissionPartitions submissionPartitions, InvalidationBus invalidationBus,
+                            TruthStore truthStore,
+                            @Value("${cache.challenges.max-size:1000}") int cacheMaxSize,
+                            @Value("${cache.challenges.max-bytes:128MB}") DataSize cacheMaxBytes) {
         this.challengeRepository = challengeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.submissionPartitions = submissionPartitions;
+        this.invalidationBus = invalidationBus;
+        this.truthStore = truthStore;
+        this.challenges = invalidationBus.cache(InvalidationBus.CHALLENGE, cacheMaxSize, cacheMaxBytes.toBytes(),
+                ChallengeService::cachedBytes);
     }
 
-    public List<Challenge> getAllChallenges() {
-        return challengeRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ChallengeDTO> getAllChallenges() {
+        return challengeRepository.findAllDtos();
     }
 
+    /**
+     * The challenge from this node's cache, with its parsed ground truth. It is shared, load it through
+     * the repository to change it.
+     */
     public Optional<Challenge> getChallengeById(Long id) {
-        return challengeRepository.findById(id);
+        return Optional.ofNullable(challenges.get(id, key -> challengeRepository.findDetachedById(key).orElse(null)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ChallengeDTO> getChallengeDtoById(Long id) {
+        return challengeRepository.findDtoById(id);
     }
 
-    public List<Challenge> getActiveChallenges(Date now) {
-        return challengeRepository.findByDeadlineAfter(now);
+    @Transactional(readOnly = true)
+    public List<ChallengeDTO> getActiveChallenges(Date now) {
+        return challengeRepository.findDtosByDeadlineAfter(now);
     }
 
     public Challenge saveChallenge(Challenge challenge) {
-        return challengeRepository.save(challenge);
+        normalizeSecondaryMetrics(challenge);
+        if (challenge.getGroundSourceFile() != null) {
+            try {
+                applyTruth(challenge, GroundTruth.parse(new ByteArrayInputStream(challenge.getGroundSourceFile()),
+                        metricOrNull(challenge)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            challenge.setTruthColumns(null);
+            challenge.setTruthRows(null);
+            challenge.setTruthValues(null);
+            challenge.setPublicRows(null);
+        }
+        Challenge saved = challengeRepository.save(challenge);
+        submissionPartitions.createPartition(saved.getId());
+        invalidationBus.publish(InvalidationBus.CHALLENGE, saved.getId());
+        return saved;
+    }
+
+    /**
+     * Creates a challenge from a multipart upload. The truth file is validated and parsed in one pass
+     * and then streamed into a large object, it is never held in memory as a whole; a packed column
+     * over the inline limit goes into one too, see {@link TruthStore}. The partition is created once
+     * that committed, so its lock on the submissions table is not held during the upload.
+     */
+    public Challenge createChallenge(Challenge challenge, MultipartFile truthFile) throws IOException {
+        normalizeSecondaryMetrics(challenge);
+        challenge.setGroundSourceFile(null);
+        Challenge saved;
+        try (GroundTruth truth = parseTruth(truthFile, metricOrNull(challenge))) {
+            applyTruth(challenge, truth);
+            saved = transactionTemplate.execute(status -> {
+                storeTruth(challenge, truthFile, truth);
+                return challengeRepository.saveAndFlush(challenge);
+            });
+        }
+        submissionPartitions.createPartition(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Replaces the ground truth of a challenge the same way, the large objects of the old one are
+     * deleted with it. Existing scores are not recomputed, that is up to a re-scoring job.
+     */
+    @Transactional
+    public Challenge replaceTruth(Long id, MultipartFile truthFile) throws IOException {
+        Challenge challenge = challengeRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + id));
+        Long oldFile = challenge.getTruthFileOid();
+        Long oldValues = challenge.getTruthValuesOid();
+        try (GroundTruth truth = parseTruth(truthFile, metricOrNull(challenge))) {
+            challenge.setGroundSourceFile(null);
+            applyTruth(challenge, truth);
+            storeTruth(challenge, truthFile, truth);
+        }
+        challengeRepository.saveAndFlush(challenge);
+        truthStore.delete(oldFile);
+        truthStore.delete(oldValues);
+        invalidationBus.publish(InvalidationBus.CHALLENGE, id);
+        return challenge;
+    }
+
+    /**
+     * The truth column ready to score, decoded from its packed form when the challenge has one, or
+     * mapped from this node's copy of it when it is a large object.
+     */
+    public List<Double> truthValues(Challenge challenge) {
+        if (challenge.getTruthValuesOid() != null && challenge.getTruthRows() != null) {
+            return truthStore.values(challenge);
+        }
+        if (challenge.getTruthValues() != null && challenge.getTruthRows() != null) {
+            return GroundTruth.values(challenge.getTruthValues(), challenge.getTruthRows(), metricOrNull(challenge));
+        }
+        return Metrics.loadValuesFromCsv(challenge.getGroundSourceFile());
+    }
+
+    /**
+     * Whether the challenge's truth was parsed on upload, rather than stored as CSV only.
+     */
+    public static boolean hasPackedTruth(Challenge challenge) {
+        return challenge.getTruthValues() != null || challenge.getTruthValuesOid() != null;
+    }
+
+    /**
+     * Every metric a submission to the challenge is scored with, the primary one included.
+     */
+    public static Set<Metrics> metrics(Challenge challenge) {
+        EnumSet<Metrics> metrics = Metrics.parseList(challenge.getSecondaryMetrics());
+        metrics.add(Metrics.getEnumFromMetric(challenge.getMetric()));
+        return metrics;
+    }
+
+    /**
+     * Loads the public-row bitset of a challenge, or null when its leaderboard is not split.
+     */
+    public static BitSet publicRows(Challenge challenge) {
+        return challenge.getPublicRows() != null ? BitSet.valueOf(challenge.getPublicRows()) : null;
     }
 
+    /**
+     * Deletes the challenge; on a partitioned submissions table its submissions go with it.
+     */
+    @Transactional
     public void deleteChallenge(Long id) {
+        truthStore.deleteOf(id);
+        submissionPartitions.dropPartition(id);
         challengeRepository.deleteById(id);
+        invalidationBus.publish(InvalidationBus.CHALLENGE, id);
+        invalidationBus.publish(InvalidationBus.LEADERBOARD, id);
+    }
+
+    private GroundTruth parseTruth(MultipartFile truthFile, Metrics metric) throws IOException {
+        try (InputStream content = truthFile.getInputStream()) {
+            return GroundTruth.parse(content, metric, truthStore.inlineMaxBytes());
+        }
+    }
+
+    private static void applyTruth(Challenge challenge, GroundTruth truth) {
+        challenge.setTruthColumns(truth.columns());
+        challenge.setTruthRows(truth.rows());
+        challenge.setTruthValues(truth.packed());
+        // seeded by the truth file so re-saving a challenge keeps its split
+        challenge.setPublicRows(challenge.getPublicFraction() == null ? null
+                : Metrics.partitionRows(truth.rows(), challenge.getPublicFraction(), truth.fileHash()).toByteArray());
+    }
+
+    private static long cachedBytes(Challenge challenge) {
+        return CHALLENGE_BASE_BYTES + length(challenge.getGroundSourceFile()) + length(challenge.getTruthValues())
+                + length(challenge.getPublicRows());
+    }
+
+    private static long length(byte[] column) {
+        return column != null ? column.length : 0;
+    }
+
+    // in the surrounding transaction, the large objects go away if it rolls back
+    private void storeTruth(Challenge challenge, MultipartFile truthFile, GroundTruth truth) {
+        try (InputStream content = truthFile.getInputStream()) {
+            challenge.setTruthFileOid(truthStore.write(content));
+            if (truth.spilled() != null) {
+                try (InputStream values = Files.newInputStream(truth.spilled())) {
+                    challenge.setTruthValuesOid(truthStore.write(values));
+                }
+            } else {
+                challenge.setTruthValuesOid(null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // canonical names without the primary metric, so scoring never meets an unknown one
+    private static void normalizeSecondaryMetrics(Challenge challenge) {
+        EnumSet<Metrics> secondary;
+        try {
+            secondary = Metrics.parseList(challenge.getSecondaryMetrics());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unknown metric in " + challenge.getSecondaryMetrics());
+        }
+        Metrics primary = metricOrNull(challenge);
+        if (primary != null) {
+            secondary.remove(primary);
+        }
+        challenge.setSecondaryMetrics(secondary.isEmpty() ? null
+                : secondary.stream().map(Metrics::name).collect(Collectors.joining(",")));
+    }
+
+    private static Metrics metricOrNull(Challenge challenge) {
+        return challenge.getMetric() != null ? Metrics.getEnumFromMetric(challenge.getMetric()) : null;
     }
 }
@@ -0,0 +1,91 @@
+package com.gs.Services;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Entities by id, cached on this node and evicted on all of them through the {@link InvalidationBus}.
+ * Cached values are shared between callers and must not be changed. Nothing is cached for a missing
+ * entity. Values are loaded in a transaction of their own, see {@link InvalidationBus#cache}.
+ * <p>
+ * The cache holds at most {@code maxSize} entries weighing {@code maxBytes} together; entries are dropped
+ * to make room for a new one, and a value heavier than the whole cache is not cached at all.
+ */
+public final class ClusterCache<V> implements InvalidationBus.Listener {
+
+    private final int maxSize;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final TransactionTemplate loads;
+    private final Map<Long, V> entries = new ConcurrentHashMap<>();
+    // bumped by every eviction, so a value loaded before one is not cached after it
+    private final AtomicLong evictions = new AtomicLong();
+    // weight of the entries, only changed while holding the cache
+    private long bytes;
+
+    ClusterCache(int maxSize, long maxBytes, ToLongFunction<V> weigher, TransactionTemplate loads) {
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.loads = loads;
+    }
+
+    /**
+     * The cached value, or the loaded one, which is cached unless an eviction ran while it was loaded.
+     */
+    public V get(long id, LongFunction<V> loader) {
+        V value = entries.get(id);
+        if (value != null) {
+            return value;
+        }
+        long before = evictions.get();
+        value = loads.execute(status -> loader.apply(id));
+        if (value == null) {
+            return null;
+        }
+        put(id, value, before);
+        return value;
+    }
+
+    @Override
+    public void evict(long id) {
+        evictions.incrementAndGet();
+        remove(id);
+    }
+
+    @Override
+    public synchronized void evictAll() {
+        evictions.incrementAndGet();
+        entries.clear();
+        bytes = 0;
+    }
+
+    // checked under the lock evictions take, so a value evicted while it loaded is never put
+    private synchronized void put(long id, V value, long before) {
+        long weight = weigher.applyAsLong(value);
+        if (evictions.get() != before || weight > maxBytes) {
+            return;
+        }
+        remove(id);
+        Iterator<Map.Entry<Long, V>> cached = entries.entrySet().iterator();
+        while (cached.hasNext() && (entries.size() >= maxSize || bytes + weight > maxBytes)) {
+            bytes -= weigher.applyAsLong(cached.next().getValue());
+            cached.remove();
+        }
+        entries.put(id, value);
+        bytes += weight;
+    }
+
+    private synchronized void remove(long id) {
+        V removed = entries.remove(id);
+        if (removed != null) {
+            bytes -= weigher.applyAsLong(removed);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.gs.Services;
 import com.gs.Entities.EvaluationMetric;
 import com.gs.Repositories.EvaluationMetricRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,14 +17,17 @@ public class EvaluationMetricService {
         this.metricRepository = metricRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<EvaluationMetric> getAllMetrics() {
         return metricRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<EvaluationMetric> getMetricById(Long id) {
         return metricRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<EvaluationMetric> getMetricsByUserId(Long userId) {
         return metricRepository.findByUserId(userId);
     }
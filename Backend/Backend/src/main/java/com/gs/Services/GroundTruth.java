@@ -0,0 +1,301 @@
+package com.gs.Services;
+
+import com.gs.Enums.Metrics;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A challenge's ground-truth column, validated and parsed once when the truth file is uploaded and
+ * stored packed next to it, so scoring never parses the truth CSV again. The labels of classification
+ * metrics such as ROC_AUC take one bit per row, any other metric's values an 8-byte double.
+ * <p>
+ * The file is read line by line and never held whole. Labels are kept in the heap, 100M rows take
+ * 12.5 MB. Values are too, up to the inline limit; beyond it they spill to a temporary file, which
+ * {@link TruthStore} moves into a large object and maps from disk when scoring. A parsed truth with a
+ * spilled column must be closed.
+ */
+public final class GroundTruth implements AutoCloseable {
+
+    private final int columns;
+    private final int rows;
+    private final int fileHash;
+    private final byte[] packed;
+    private final Path spilled;
+
+    private GroundTruth(int columns, int rows, int fileHash, byte[] packed, Path spilled) {
+        this.columns = columns;
+        this.rows = rows;
+        this.fileHash = fileHash;
+        this.packed = packed;
+        this.spilled = spilled;
+    }
+
+    /**
+     * Reads the truth file once, line by line, keeping the packed column in the heap.
+     *
+     * @param metric the challenge metric, may be null
+     * @throws ResponseStatusException with status 400 describing the first problem found
+     */
+    public static GroundTruth parse(InputStream content, Metrics metric) throws IOException {
+        return parse(content, metric, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the truth file once, line by line. A packed column larger than {@code inlineMaxBytes} is
+     * written to a temporary file instead, see {@link #spilled()}.
+     *
+     * @param metric the challenge metric, may be null
+     * @throws ResponseStatusException with status 400 describing the first problem found
+     */
+    public static GroundTruth parse(InputStream content, Metrics metric, long inlineMaxBytes) throws IOException {
+        HashingInputStream hashing = new HashingInputStream(content);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(hashing, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null || header.isBlank()) {
+            throw badRequest("The ground truth file is empty");
+        }
+        int columns = header.split(",", -1).length;
+        if (columns < 2) {
+            throw badRequest("The ground truth needs at least 2 columns, the header has " + columns);
+        }
+
+        boolean labels = metric != null && metric.hasLabels();
+        BitSet positives = new BitSet();
+        try (SpillingOutputStream values = new SpillingOutputStream(inlineMaxBytes)) {
+            DataOutputStream out = new DataOutputStream(values);
+            int rows = read(reader, columns, labels, metric, positives, out);
+            out.flush();
+            if (labels) {
+                return new GroundTruth(columns, rows, hashing.hash, positives.toByteArray(), null);
+            }
+            return new GroundTruth(columns, rows, hashing.hash, values.inline(), values.keep());
+        }
+    }
+
+    private static int read(BufferedReader reader, int columns, boolean labels, Metrics metric, BitSet positives,
+                            DataOutputStream out) throws IOException {
+        int rows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int lineNumber = rows + 2;
+            String[] parts = line.split(",", -1);
+            if (parts.length != columns) {
+                throw badRequest("Line " + lineNumber + " has " + parts.length + " columns, expected " + columns);
+            }
+            double value = parse(parts[1]);
+            if (!Double.isFinite(value)) {
+                throw badRequest("Line " + lineNumber + " has a non-numeric value: " + parts[1]);
+            }
+            if (labels) {
+                if (value != 0.0 && value != 1.0) {
+                    throw badRequest("Line " + lineNumber + " has label " + parts[1] + ", " + metric + " labels must be 0 or 1");
+                }
+                if (value == 1.0) {
+                    positives.set(rows);
+                }
+            } else {
+                out.writeDouble(value);
+            }
+            rows++;
+        }
+        if (rows == 0) {
+            throw badRequest("The ground truth has no rows");
+        }
+        return rows;
+    }
+
+    /**
+     * Read-only view over packed values, decoded on access.
+     */
+    public static List<Double> values(byte[] packed, int rows, Metrics metric) {
+        if (metric != null && metric.hasLabels()) {
+            BitSet positives = BitSet.valueOf(packed);
+            return new PackedList(rows) {
+                @Override
+                public Double get(int index) {
+                    return positives.get(Objects.checkIndex(index, rows)) ? 1.0 : 0.0;
+                }
+            };
+        }
+        DoubleBuffer doubles = ByteBuffer.wrap(packed).asDoubleBuffer();
+        return new PackedList(rows) {
+            @Override
+            public Double get(int index) {
+                return doubles.get(Objects.checkIndex(index, rows));
+            }
+        };
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * {@link java.util.Arrays#hashCode(byte[])} of the raw file, the seed of the public/private split.
+     */
+    public int fileHash() {
+        return fileHash;
+    }
+
+    /**
+     * The packed column, null when it was spilled.
+     */
+    public byte[] packed() {
+        return packed;
+    }
+
+    /**
+     * The temporary file holding the packed column when it was larger than the inline limit, else null.
+     * It is deleted on {@link #close()}.
+     */
+    public Path spilled() {
+        return spilled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spilled != null) {
+            Files.deleteIfExists(spilled);
+        }
+    }
+
+    private static double parse(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static ResponseStatusException badRequest(String reason) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
+    }
+
+    private abstract static class PackedList extends AbstractList<Double> implements RandomAccess {
+        private final int size;
+
+        PackedList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Collects bytes in memory up to a limit and in a temporary file past it. The file is deleted on
+     * close unless it was kept.
+     */
+    private static final class SpillingOutputStream extends OutputStream {
+        private final long inlineMaxBytes;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path file;
+        private OutputStream out;
+        private long size;
+        private boolean kept;
+
+        SpillingOutputStream(long inlineMaxBytes) {
+            this.inlineMaxBytes = inlineMaxBytes;
+            this.out = memory;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            spillIfNeeded(1);
+            out.write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            spillIfNeeded(length);
+            out.write(buffer, offset, length);
+            size += length;
+        }
+
+        private void spillIfNeeded(int length) throws IOException {
+            if (file == null && size + length > inlineMaxBytes) {
+                file = Files.createTempFile("ground-truth-", ".bin");
+                out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+                memory.writeTo(out);
+                memory = null;
+            }
+        }
+
+        byte[] inline() {
+            return file == null ? memory.toByteArray() : null;
+        }
+
+        Path keep() throws IOException {
+            if (file != null) {
+                out.flush();
+                kept = true;
+            }
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (file != null && !kept) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Hashes every byte read the way {@link java.util.Arrays#hashCode(byte[])} does.
+     */
+    private static final class HashingInputStream extends FilterInputStream {
+        int hash = 1;
+
+        HashingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                hash = 31 * hash + (byte) b;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + n; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            return n;
+        }
+    }
+}
@@ -9,22 +9,32 @@ import java.util.Optional;
 @Service
 public class HackathonInformationService {
 
+    // the single row shown on every page, cached under this key
+    private static final long KEY = 0;
+
     private final HackathonInformationRepository hackathonInformationRepository;
+    private final InvalidationBus invalidationBus;
+    private final ClusterCache<HackathonInformation> cache;
 
-    public HackathonInformationService(HackathonInformationRepository hackathonInformationRepository) {
+    public HackathonInformationService(HackathonInformationRepository hackathonInformationRepository,
+                                       InvalidationBus invalidationBus) {
         this.hackathonInformationRepository = hackathonInformationRepository;
+        this.invalidationBus = invalidationBus;
+        this.cache = invalidationBus.cache(InvalidationBus.HACKATHON_INFORMATION, 1);
     }
 
     public Optional<HackathonInformation> getHackathonInformation() {
-        return hackathonInformationRepository.findFirstByOrderByIdAsc();
+        return Optional.ofNullable(cache.get(KEY, key -> hackathonInformationRepository.findFirstByOrderByIdAsc().orElse(null)));
     }
 
     public HackathonInformation saveHackathonInformation(HackathonInformation hackathonInformation) {
-        return hackathonInformationRepository.save(hackathonInformation);
+        HackathonInformation saved = hackathonInformationRepository.save(hackathonInformation);
+        invalidationBus.publish(InvalidationBus.HACKATHON_INFORMATION, null);
+        return saved;
     }
 
     public void deleteHackathonInformation(Long id) {
         hackathonInformationRepository.deleteById(id);
+        invalidationBus.publish(InvalidationBus.HACKATHON_INFORMATION, null);
     }
 }
-
@@ -0,0 +1,287 @@
+package com.gs.Services;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
+
+/**
+ * Evicts node-local caches on every node. A write publishes the topic and id of what it changed; this
+ * node evicts once the surrounding transaction commits, the other nodes when PostgreSQL delivers the
+ * {@code NOTIFY} sent with it, which happens on the same commit and not at all on rollback.
+ * <p>
+ * Each node listens on a connection of its own, outside the pool. Notifications sent while that
+ * connection is down are lost, so every cache is flushed whenever it (re)connects. Without PostgreSQL,
+ * or with {@code cache.invalidation.enabled=false}, only this node's caches are evicted, which is
+ * enough for a single node.
+ */
+@Component
+public class InvalidationBus {
+
+    public static final String CHALLENGE = "challenge";
+    public static final String HACKATHON_INFORMATION = "hackathon-information";
+    public static final String LEADERBOARD = "leaderboard";
+    public static final String USER = "user";
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private static final String CHANNEL = "cache_invalidation";
+    private static final String ALL = "*";
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final TransactionTemplate cacheLoads;
+    private final int pollIntervalMillis;
+
+    // checked at run time rather than through a bean condition, which AOT processing would freeze
+    private final boolean enabled;
+
+    // tells this node's notifications apart, several nodes may share a host
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listener;
+
+    public InvalidationBus(JdbcTemplate jdbcTemplate,
+                           DataSourceProperties dataSourceProperties,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${cache.invalidation.enabled:true}") boolean enabled,
+                           @Value("${cache.invalidation.poll-interval:10s}") Duration pollInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        // read-write, so it goes to the primary whatever transaction the caller is in
+        this.cacheLoads = new TransactionTemplate(transactionManager);
+        this.cacheLoads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.pollIntervalMillis = (int) pollInterval.toMillis();
+    }
+
+    /**
+     * Evicts entries of a topic; {@link #evictAll()} is called when single evictions may have been missed.
+     */
+    public interface Listener {
+        void evict(long id);
+
+        void evictAll();
+    }
+
+    public void subscribe(String topic, Listener listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * A cache of the topic that is evicted through this bus. Entries are loaded from the primary in a
+     * transaction of their own: one loaded from a lagging replica after an eviction would be cached until
+     * the next one.
+     */
+    public <V> ClusterCache<V> cache(String topic, int maxSize) {
+        return cache(topic, maxSize, Long.MAX_VALUE, value -> 0);
+    }
+
+    /**
+     * A cache of the topic that also keeps the weight of its values, as the weigher reports it, under
+     * {@code maxBytes}.
+     */
+    public <V> ClusterCache<V> cache(String topic, int maxSize, long maxBytes, ToLongFunction<V> weigher) {
+        ClusterCache<V> cache = new ClusterCache<>(maxSize, maxBytes, weigher, cacheLoads);
+        subscribe(topic, cache);
+        return cache;
+    }
+
+    /**
+     * Evicts the entry on every node, this one included, once the current transaction commits, or right
+     * away without one.
+     *
+     * @param id the changed entity, null to evict the whole topic
+     */
+    public void publish(String topic, Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(topic, id);
+                }
+            });
+        } else {
+            dispatch(topic, id);
+        }
+        publishRemote(topic, id);
+    }
+
+    /**
+     * Evicts the entry on the other nodes only, for state this node has already brought up to date.
+     */
+    public void publishRemote(String topic, Long id) {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        String payload = nodeId + " " + topic + " " + (id != null ? id : ALL);
+        try {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        } catch (DataAccessException e) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                // the change itself rolls back with it
+                throw e;
+            }
+            log.warn("Could not notify other nodes of a change to {}: {}", payload, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+        Connection current = connection;
+        if (current != null) {
+            try {
+                // unblocks a pending wait for notifications
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Closing the cache invalidation connection failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void listen() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            try (Connection listening = connect()) {
+                connection = listening;
+                try (Statement statement = listening.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // anything cached before the LISTEN may have missed its notification
+                evictAll();
+                backoff = MIN_BACKOFF_MILLIS;
+                log.info("Listening for cache invalidations as node {}", nodeId);
+
+                PGConnection pg = listening.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollIntervalMillis);
+                    if (notifications == null || notifications.length == 0) {
+                        // a dropped connection does not always surface while waiting
+                        if (!listening.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                            throw new SQLException("Cache invalidation connection is no longer valid");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, reconnecting in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            properties.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        properties.setProperty("ApplicationName", "cache-invalidation");
+        properties.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    private void receive(String payload) {
+        String[] parts = payload.split(" ", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            dispatch(parts[1], parts[2].equals(ALL) ? null : Long.valueOf(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation {}", payload);
+        }
+    }
+
+    private void dispatch(String topic, Long id) {
+        for (Listener listener : listeners.getOrDefault(topic, List.of())) {
+            try {
+                if (id != null) {
+                    listener.evict(id);
+                } else {
+                    listener.evictAll();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Evicting {} {} failed: {}", topic, id, e.getMessage());
+            }
+        }
+    }
+
+    private void evictAll() {
+        listeners.forEach((topic, subscribed) -> dispatch(topic, null));
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            known = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            postgres = known;
+        }
+        return known;
+    }
+}
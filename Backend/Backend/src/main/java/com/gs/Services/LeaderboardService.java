@@ -0,0 +1,485 @@
+package com.gs.Services;
+
+import com.gs.Config.ReplicaRoutingDataSource;
+import com.gs.DTO.Standing;
+import com.gs.DTO.SubmissionScore;
+import com.gs.Entities.Challenge;
+import com.gs.Enums.Metrics;
+import com.gs.Repositories.SubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the standings of challenges that have live subscribers in memory and pushes them over SSE.
+ * Subscribers get the full standings once, then only entries whose rank or score changed. Score
+ * updates are coalesced and published at most once per {@code leaderboard.stream.interval}.
+ * <p>
+ * Scores that land on another node arrive as {@link InvalidationBus#LEADERBOARD} invalidations; the
+ * board is then reloaded from the database before the next publication.
+ * <p>
+ * A subscriber whose send has been blocked for more than {@code leaderboard.stream.max-lag} is dropped.
+ * The blocked write only returns at the container's write timeout, so the sender pool gets a thread in
+ * its place until then, and stuck clients cannot hold up the sends to everyone else.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final ChallengeService challengeService;
+    private final InvalidationBus invalidationBus;
+    private final long emitterTimeoutMillis;
+    private final long maxLagNanos;
+    private final int senderThreads;
+    private final ThreadPoolExecutor sender;
+    // sends of dropped subscribers still blocked in a write, each has a thread added to the pool
+    private int blockedSends;
+
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardService(SubmissionRepository submissionRepository,
+                              ChallengeService challengeService,
+                              InvalidationBus invalidationBus,
+                              @Value("${leaderboard.stream.timeout:30m}") Duration emitterTimeout,
+                              @Value("${leaderboard.stream.max-lag:10s}") Duration maxLag,
+                              @Value("${leaderboard.stream.sender-threads:4}") int senderThreads) {
+        this.submissionRepository = submissionRepository;
+        this.challengeService = challengeService;
+        this.invalidationBus = invalidationBus;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.maxLagNanos = maxLag.toNanos();
+        this.senderThreads = senderThreads;
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        invalidationBus.subscribe(InvalidationBus.LEADERBOARD, new InvalidationBus.Listener() {
+            @Override
+            public void evict(long challengeId) {
+                Board board = boards.get(challengeId);
+                if (board != null) {
+                    board.stale = true;
+                }
+            }
+
+            @Override
+            public void evictAll() {
+                boards.values().forEach(board -> board.stale = true);
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<Standing> getStandings(Long challengeId) {
+        return board(challengeId).rank();
+    }
+
+    /**
+     * Ranks every participant by the private score of their best public submission. Only available
+     * once the challenge deadline has passed.
+     */
+    @Transactional(readOnly = true)
+    public List<Standing> getPrivateStandings(Long challengeId) {
+        Challenge challenge = challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        if (challenge.getDeadline() == null || challenge.getDeadline().after(new Date())) {
+            throw new IllegalStateException("The private leaderboard is revealed after the deadline");
+        }
+        Metrics metric = Metrics.getEnumFromMetric(challenge.getMetric());
+
+        Board publicBoard = new Board(challengeId, metric);
+        publicBoard.reload(submissionRepository.findScoresByChallengeId(challengeId));
+        Board privateBoard = new Board(challengeId, metric);
+        for (SubmissionScore selected : publicBoard.best.values()) {
+            if (selected.privateScore() != null) {
+                privateBoard.offer(new SubmissionScore(selected.submissionId(), selected.userId(),
+                        selected.privateScore(), null));
+            }
+        }
+        return privateBoard.rank();
+    }
+
+    public SseEmitter subscribe(Long challengeId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        Board board = boards.get(challengeId);
+        Board loaded = null;
+        while (true) {
+            if (board == null) {
+                // loaded outside the map, a query must not block other challenges' boards
+                loaded = loaded != null ? loaded : load(challengeId);
+                Board existing = boards.putIfAbsent(challengeId, loaded);
+                board = existing != null ? existing : loaded;
+            }
+            board.subscribers.add(subscriber);
+            // evicted before the subscriber was added, see publishChanges
+            if (boards.get(challengeId) == board) {
+                break;
+            }
+            board.subscribers.remove(subscriber);
+            board = boards.get(challengeId);
+        }
+        Board subscribed = board;
+
+        emitter.onCompletion(() -> subscribed.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribed.subscribers.remove(subscriber));
+        emitter.onError(e -> subscribed.subscribers.remove(subscriber));
+
+        try {
+            emitter.send(SseEmitter.event().name("standings").data(subscribed.rank()));
+        } catch (IOException e) {
+            subscribed.subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    /**
+     * Records a newly scored submission. Only boards that are already loaded are updated;
+     * the rest pick the score up from the database when first requested.
+     */
+    public void onScore(Long challengeId, Long userId, Long submissionId, double score) {
+        invalidationBus.publishRemote(InvalidationBus.LEADERBOARD, challengeId);
+        Board board = boards.get(challengeId);
+        if (board == null) {
+            return;
+        }
+        if (!board.offer(new SubmissionScore(submissionId, userId, score, null))) {
+            // the participant's best submission got worse, their other submissions may now be best
+            board.reload(submissionRepository.findScoresByChallengeId(challengeId));
+        }
+    }
+
+    /**
+     * Rebuilds a loaded board from the database, e.g. after its scores were recomputed in bulk.
+     */
+    public void reload(Long challengeId) {
+        invalidationBus.publishRemote(InvalidationBus.LEADERBOARD, challengeId);
+        Board board = boards.get(challengeId);
+        if (board != null) {
+            board.reload(submissionRepository.findScoresByChallengeId(challengeId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.stream.interval:1000}")
+    public void publishChanges() {
+        // reloads after an invalidation must see the change behind it, the scheduler thread only runs jobs
+        ReplicaRoutingDataSource.forcePrimary(true);
+        for (Board board : boards.values()) {
+            if (board.subscribers.isEmpty()) {
+                boards.computeIfPresent(board.challengeId, (id, b) -> b.subscribers.isEmpty() ? null : b);
+                continue;
+            }
+            // checked on every round, a stuck client on a quiet board is dropped all the same
+            long now = System.nanoTime();
+            for (Subscriber subscriber : board.subscribers) {
+                if (subscriber.lagging(now)) {
+                    // a stuck client must not hold memory or a sender thread for ever; it can reconnect
+                    board.subscribers.remove(subscriber);
+                    subscriber.drop();
+                }
+            }
+            try {
+                refreshIfStale(board);
+            } catch (RuntimeException e) {
+                log.warn("Could not reload the leaderboard of challenge {}: {}", board.challengeId, e.getMessage());
+            }
+            List<Standing> changes = board.takeChanges();
+            if (changes.isEmpty()) {
+                continue;
+            }
+            for (Subscriber subscriber : board.subscribers) {
+                subscriber.enqueue(changes);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    // grows the sender pool by a thread for every blocked send and shrinks it again once the send returned
+    private synchronized void blockedSend(int delta) {
+        blockedSends += delta;
+        int size = senderThreads + blockedSends;
+        if (delta > 0) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    private Board board(Long challengeId) {
+        Board board = boards.get(challengeId);
+        if (board == null) {
+            return load(challengeId);
+        }
+        refreshIfStale(board);
+        return board;
+    }
+
+    private void refreshIfStale(Board board) {
+        if (board.stale) {
+            // cleared first, so an invalidation arriving during the reload is not lost
+            board.stale = false;
+            try {
+                board.reload(submissionRepository.findScoresByChallengeId(board.challengeId));
+            } catch (RuntimeException e) {
+                board.stale = true;
+                throw e;
+            }
+        }
+    }
+
+    private Board load(Long challengeId) {
+        Challenge challenge = challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        Board board = new Board(challengeId, Metrics.getEnumFromMetric(challenge.getMetric()));
+        board.reload(submissionRepository.findScoresByChallengeId(challengeId));
+        board.takeChanges();
+        return board;
+    }
+
+    // anonymous submissions compete on their own
+    private static String participantKey(Long userId, Long submissionId) {
+        return userId != null ? "u" + userId : "s" + submissionId;
+    }
+
+    private final class Board {
+        final Long challengeId;
+        final Metrics metric;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        // best submission per participant
+        private final Map<String, SubmissionScore> best = new HashMap<>();
+        // standings as last published to subscribers
+        private Map<String, Standing> published = new HashMap<>();
+        volatile boolean dirty;
+        // changed on another node since it was loaded
+        volatile boolean stale;
+
+        Board(Long challengeId, Metrics metric) {
+            this.challengeId = challengeId;
+            this.metric = metric;
+        }
+
+        synchronized void reload(List<SubmissionScore> scores) {
+            best.clear();
+            for (SubmissionScore score : scores) {
+                offer(score);
+            }
+            dirty = true;
+        }
+
+        /**
+         * Returns false when the score lowers the participant's current best submission.
+         */
+        synchronized boolean offer(SubmissionScore score) {
+            String key = participantKey(score.userId(), score.submissionId());
+            SubmissionScore current = best.get(key);
+            if (current == null || metric.compareScores(score.score(), current.score()) < 0) {
+                best.put(key, score);
+                dirty = true;
+                return true;
+            }
+            return !current.submissionId().equals(score.submissionId())
+                    || metric.compareScores(score.score(), current.score()) == 0;
+        }
+
+        synchronized List<Standing> rank() {
+            return new ArrayList<>(rankByParticipant().values());
+        }
+
+        synchronized List<Standing> takeChanges() {
+            if (!dirty) {
+                return List.of();
+            }
+            dirty = false;
+            Map<String, Standing> current = rankByParticipant();
+            List<Standing> changes = new ArrayList<>();
+            for (Map.Entry<String, Standing> entry : current.entrySet()) {
+                if (!entry.getValue().equals(published.get(entry.getKey()))) {
+                    changes.add(entry.getValue());
+                }
+            }
+            published = current;
+            return changes;
+        }
+
+        private Map<String, Standing> rankByParticipant() {
+            List<Map.Entry<String, SubmissionScore>> entries = new ArrayList<>(best.entrySet());
+            entries.sort((a, b) -> metric.compareScores(a.getValue().score(), b.getValue().score()));
+
+            Map<String, Standing> ranked = new LinkedHashMap<>();
+            int rank = 0;
+            double previous = Double.NaN;
+            for (int i = 0; i < entries.size(); i++) {
+                SubmissionScore score = entries.get(i).getValue();
+                if (i == 0 || Double.compare(score.score(), previous) != 0) {
+                    rank = i + 1;
+                    previous = score.score();
+                }
+                ranked.put(entries.get(i).getKey(),
+                        new Standing(rank, score.userId(), score.submissionId(), score.score()));
+            }
+            return ranked;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+
+        // changes not yet written, at most one entry per participant
+        private Map<String, Standing> pending = new LinkedHashMap<>();
+        // set until the initial standings are written, so no change can overtake them
+        private boolean sending = true;
+        private long sendingSince = System.nanoTime();
+        // a drain is queued or running on the sender pool
+        private boolean draining;
+        private boolean dropped;
+        // dropped while its drain was blocked, the pool has an extra thread until the drain returns
+        private boolean replaced;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void start() {
+            synchronized (this) {
+                sending = false;
+                if (!dropped) {
+                    if (!pending.isEmpty()) {
+                        dispatch();
+                    }
+                    return;
+                }
+            }
+            close(null);
+        }
+
+        // the container may already have failed the request, after a send that timed out
+        private void close(Throwable error) {
+            try {
+                if (error != null) {
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            } catch (IllegalStateException e) {
+                log.debug("Leaderboard subscriber already closed: {}", e.getMessage());
+            }
+        }
+
+        synchronized boolean lagging(long now) {
+            return sending && now - sendingSince > maxLagNanos;
+        }
+
+        /**
+         * Stops sending to the subscriber. The emitter is completed by whoever is blocked sending to it
+         * once the send returns; completing it here would wait for that send, it locks the emitter.
+         */
+        synchronized void drop() {
+            if (dropped) {
+                return;
+            }
+            dropped = true;
+            pending.clear();
+            replaced = draining;
+            if (replaced) {
+                blockedSend(1);
+            }
+        }
+
+        synchronized void enqueue(Collection<Standing> changes) {
+            if (dropped) {
+                return;
+            }
+            for (Standing standing : changes) {
+                pending.put(participantKey(standing.userId(), standing.submissionId()), standing);
+            }
+            if (!sending) {
+                dispatch();
+            }
+        }
+
+        private void dispatch() {
+            sending = true;
+            draining = true;
+            sendingSince = System.nanoTime();
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                sending = false;
+                draining = false;
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<Standing> frame;
+                    synchronized (this) {
+                        if (dropped) {
+                            break;
+                        }
+                        if (pending.isEmpty()) {
+                            sending = false;
+                            return;
+                        }
+                        frame = new ArrayList<>(pending.values());
+                        pending = new LinkedHashMap<>();
+                        sendingSince = System.nanoTime();
+                    }
+                    try {
+                        emitter.send(SseEmitter.event().name("rank-changes").data(frame));
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Dropping leaderboard subscriber: {}", e.getMessage());
+                        close(e);
+                        synchronized (this) {
+                            pending.clear();
+                            sending = false;
+                        }
+                        return;
+                    }
+                }
+                close(null);
+            } finally {
+                boolean wasReplaced;
+                synchronized (this) {
+                    draining = false;
+                    wasReplaced = replaced;
+                    replaced = false;
+                }
+                if (wasReplaced) {
+                    blockedSend(-1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.gs.Services;
+
+import com.gs.Config.ReplicaRoutingDataSource;
+import com.gs.Entities.Challenge;
+import com.gs.Entities.RescoreJob;
+import com.gs.Enums.JobStatus;
+import com.gs.Enums.Metrics;
+import com.gs.Repositories.RescoreJobRepository;
+import com.gs.Repositories.SubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Recomputes the scores of every submission of a challenge after its ground truth or metric changed.
+ * Submissions are walked in id order in fixed-size chunks, each chunk is scored in parallel and
+ * written back in one JDBC batch together with the job checkpoint, so an interrupted job resumes
+ * after the last completed chunk. A submission that cannot be scored against the new truth loses its
+ * scores rather than keeping ones computed against the old truth.
+ * <p>
+ * The node running a job holds a lease on it, extended with every checkpoint and by a heartbeat. Running
+ * jobs nobody holds a live lease on are taken over on startup and every {@code rescore.resume-interval},
+ * so a job of a node that stopped or died continues on exactly one other node.
+ * <p>
+ * Jobs and their chunks read the primary: a lagging replica would resume from an older checkpoint, or
+ * score files against a truth the job was started for before the replica had it.
+ * <p>
+ * On PostgreSQL {@code db/rescore-jobs.sql} runs on startup, adding the partial unique index that keeps
+ * a challenge to one running job however many nodes start one.
+ */
+@Service
+public class RescoreService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RescoreService.class);
+
+    private final RescoreJobRepository rescoreJobRepository;
+    private final SubmissionRepository submissionRepository;
+    private final ChallengeService challengeService;
+    private final LeaderboardService leaderboardService;
+    private final TeamStandingService teamStandingService;
+    private final ChallengeAnalyticsService challengeAnalyticsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchiveStore archiveStore;
+    private final ScoringMemoryBudget memoryBudget;
+    private final int chunkSize;
+    private final double leaseSeconds;
+
+    private final String nodeId;
+    // jobs handed to the coordinator and not finished yet, so a job is not queued twice
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private volatile Long current;
+
+    // one job runs at a time, its chunks are scored on the worker pool
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers;
+
+    public RescoreService(RescoreJobRepository rescoreJobRepository,
+                          SubmissionRepository submissionRepository,
+                          ChallengeService challengeService,
+                          LeaderboardService leaderboardService,
+                          TeamStandingService teamStandingService,
+                          ChallengeAnalyticsService challengeAnalyticsService,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          ArchiveStore archiveStore,
+                          ScoringMemoryBudget memoryBudget,
+                          @Value("${rescore.chunk-size:200}") int chunkSize,
+                          @Value("${rescore.threads:0}") int threads,
+                          @Value("${rescore.lease:60s}") Duration lease) {
+        this.rescoreJobRepository = rescoreJobRepository;
+        this.submissionRepository = submissionRepository;
+        this.challengeService = challengeService;
+        this.leaderboardService = leaderboardService;
+        this.teamStandingService = teamStandingService;
+        this.challengeAnalyticsService = challengeAnalyticsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.archiveStore = archiveStore;
+        this.memoryBudget = memoryBudget;
+        this.chunkSize = chunkSize;
+        this.leaseSeconds = lease.toMillis() / 1000.0;
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.workers = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RescoreJob> getJob(Long id) {
+        return rescoreJobRepository.findById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RescoreJob> getJobsByChallengeId(Long challengeId) {
+        return rescoreJobRepository.findByChallengeIdOrderByIdDesc(challengeId);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!isPostgres()) {
+            return;
+        }
+        jdbcTemplate.execute(new ClassPathResource("db/rescore-jobs.sql").getContentAsString(StandardCharsets.UTF_8));
+        log.info("Unique index on running rescore_jobs in place");
+    }
+
+    /**
+     * Starts a job unless one is running for the challenge, on any node.
+     *
+     * @throws IllegalStateException when one is
+     */
+    public RescoreJob startJob(Long challengeId) {
+        challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        // the common case, answered without a failed insert; the unique index decides a race
+        if (rescoreJobRepository.existsByChallengeIdAndStatus(challengeId, JobStatus.RUNNING)) {
+            throw alreadyRunning(challengeId);
+        }
+
+        RescoreJob job = new RescoreJob();
+        job.setChallengeId(challengeId);
+        job.setStatus(JobStatus.RUNNING);
+        job.setLastSubmissionId(0L);
+        job.setTotal(submissionRepository.countByChallengeId(challengeId));
+        job.setStartedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getStartedAt());
+        RescoreJob saved;
+        try {
+            saved = rescoreJobRepository.save(job);
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyRunning(challengeId);
+        }
+
+        submit(saved.getId());
+        return saved;
+    }
+
+    private static IllegalStateException alreadyRunning(Long challengeId) {
+        return new IllegalStateException("A re-scoring job is already running for challenge " + challengeId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${rescore.resume-interval:60000}", initialDelayString = "${rescore.resume-interval:60000}")
+    public void resumeJobs() {
+        for (RescoreJob job : rescoreJobRepository.findUnleased()) {
+            if (!queued.contains(job.getId())) {
+                log.info("Resuming re-scoring job {} of challenge {} after submission {}",
+                        job.getId(), job.getChallengeId(), job.getLastSubmissionId());
+                submit(job.getId());
+            }
+        }
+    }
+
+    // well inside the lease, a chunk of large files may take longer than that between checkpoints
+    @Scheduled(fixedDelayString = "${rescore.heartbeat:10000}")
+    public void heartbeat() {
+        Long jobId = current;
+        if (jobId == null) {
+            return;
+        }
+        try {
+            if (rescoreJobRepository.heartbeat(jobId, nodeId, leaseSeconds) == 0) {
+                log.warn("Lost the lease on re-scoring job {}, it stops at its next checkpoint", jobId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not extend the lease on re-scoring job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        if (queued.add(jobId)) {
+            coordinator.execute(() -> {
+                ReplicaRoutingDataSource.forcePrimary(true);
+                try {
+                    run(jobId);
+                } finally {
+                    queued.remove(jobId);
+                }
+            });
+        }
+    }
+
+    private void run(Long jobId) {
+        if (rescoreJobRepository.claim(jobId, nodeId, leaseSeconds) == 0) {
+            // finished, or running on another node
+            return;
+        }
+        current = jobId;
+        try {
+            process(rescoreJobRepository.findById(jobId).orElseThrow());
+        } finally {
+            current = null;
+        }
+    }
+
+    private void process(RescoreJob job) {
+        try {
+            Challenge challenge = challengeService.getChallengeById(job.getChallengeId())
+                    .orElseThrow(() -> new IllegalStateException("Challenge was deleted"));
+            Metrics metric = Metrics.getEnumFromMetric(challenge.getMetric());
+            Set<Metrics> metrics = ChallengeService.metrics(challenge);
+            // decoded once for the whole job
+            List<Double> truth = challengeService.truthValues(challenge);
+            BitSet publicRows = ChallengeService.publicRows(challenge);
+            boolean approximate = Boolean.TRUE.equals(challenge.getApproximateScoring());
+            Scorer scorer = approximate
+                    ? file -> Metrics.calculateAll(metrics, new ByteArrayInputStream(file), truth, publicRows, true)
+                    : file -> Metrics.calculateAll(metrics, Metrics.loadValuesFromCsv(file), truth, publicRows);
+            // shares the memory budget with the scoring workers, a re-score waits rather than crowding them
+            // out; reserved before the file is loaded, every valid file has one row per truth row
+            long estimate = ScoringMemoryBudget.estimate(metrics, approximate, null, truth.size(),
+                    ChallengeService.hasPackedTruth(challenge));
+            Loader budgeted = submissionId -> {
+                try (ScoringMemoryBudget.Reservation ignored = memoryBudget.reserve(estimate)) {
+                    byte[] file = submissionRepository.findFileById(submissionId).map(archiveStore::contents)
+                            .orElseThrow(() -> new IllegalStateException("Submission has no file"));
+                    return scorer.score(file);
+                }
+            };
+
+            List<Long> chunk;
+            while (!(chunk = submissionRepository.findIdsByChallengeIdAfter(
+                    job.getChallengeId(), job.getLastSubmissionId(), Limit.of(chunkSize))).isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                List<Object[]> updates = new ArrayList<>(chunk.size());
+                int failed = scoreChunk(chunk, metric, budgeted, updates);
+                job.setLastSubmissionId(chunk.get(chunk.size() - 1));
+                job.setProcessed(job.getProcessed() + chunk.size());
+                job.setFailed(job.getFailed() + failed);
+                if (!saveChunk(job, updates)) {
+                    log.warn("Re-scoring job {} was taken over by another node", job.getId());
+                    return;
+                }
+            }
+
+            job.setStatus(JobStatus.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // left RUNNING, resumed from the checkpoint once the lease expired
+            return;
+        } catch (Exception e) {
+            log.error("Re-scoring job {} failed", job.getId(), e);
+            job.setStatus(JobStatus.FAILED);
+            job.setMessage(e.getMessage());
+        }
+        if (rescoreJobRepository.finish(job.getId(), nodeId, job.getStatus().name(), job.getMessage()) == 0) {
+            log.warn("Re-scoring job {} was taken over by another node", job.getId());
+            return;
+        }
+        leaderboardService.reload(job.getChallengeId());
+        teamStandingService.rebuildChallenge(job.getChallengeId());
+        challengeAnalyticsService.onScoresChanged(job.getChallengeId());
+    }
+
+    /**
+     * Scores the chunk in parallel and adds {score, private score, metric scores, id} rows to the updates,
+     * with null scores for the submissions that could not be scored. Returns how many could not.
+     */
+    private int scoreChunk(List<Long> chunk, Metrics metric, Loader loader, List<Object[]> updates)
+            throws InterruptedException {
+        List<Future<Map<Metrics, Metrics.Split>>> scores = new ArrayList<>(chunk.size());
+        for (Long submissionId : chunk) {
+            scores.add(workers.submit(() -> {
+                ReplicaRoutingDataSource.forcePrimary(true);
+                return loader.score(submissionId);
+            }));
+        }
+
+        int failed = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                Map<Metrics, Metrics.Split> splits = scores.get(i).get();
+                Metrics.Split split = splits.get(metric);
+                updates.add(new Object[]{split.publicScoreOrNull(), split.privateScoreOrNull(),
+                        Metrics.packPublicScores(splits), chunk.get(i)});
+            } catch (ExecutionException e) {
+                log.warn("Could not re-score submission {}: {}", chunk.get(i), e.getCause().getMessage());
+                updates.add(new Object[]{null, null, null, chunk.get(i)});
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private interface Scorer {
+        Map<Metrics, Metrics.Split> score(byte[] file);
+    }
+
+    // loads the submission's file and scores it
+    private interface Loader {
+        Map<Metrics, Metrics.Split> score(Long submissionId) throws InterruptedException;
+    }
+
+    // false when another node holds the job now, nothing is written then
+    private boolean saveChunk(RescoreJob job, List<Object[]> updates) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (rescoreJobRepository.checkpoint(job.getId(), nodeId, job.getLastSubmissionId(), job.getProcessed(),
+                    job.getFailed(), leaseSeconds) == 0) {
+                return false;
+            }
+            jdbcTemplate.batchUpdate("UPDATE submissions SET score = ?, private_score = ?, metric_scores = ? WHERE id = ?", updates);
+            return true;
+        }));
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
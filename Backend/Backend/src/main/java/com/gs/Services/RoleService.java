@@ -3,6 +3,7 @@ package com.gs.Services;
 import com.gs.Entities.Role;
 import com.gs.Repositories.RoleRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,14 +17,17 @@ public class RoleService {
         this.roleRepository = roleRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Role> getAllRoles() {
         return roleRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Role> getRoleById(Long id) {
         return roleRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Role> getRoleByName(String roleName) {
         return roleRepository.findByRole(roleName);
     }
@@ -0,0 +1,140 @@
+package com.gs.Services;
+
+import com.gs.Enums.Metrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Heap shared by all scorings running in this JVM. A scoring reserves its estimated footprint before
+ * it loads the file and gives it back when done; when the budget is taken it waits, so a burst of
+ * large uploads queues up instead of running the JVM out of memory.
+ * <p>
+ * Permits are KiB of {@code scoring.memory.budget}, half the maximum heap by default, handed out
+ * first come first served so a large scoring is not starved by a stream of small ones. A single
+ * scoring larger than the whole budget takes all of it and runs alone.
+ * <p>
+ * Cached challenges are not part of the budget, their truth columns live in the other half of the heap
+ * within {@code cache.challenges.max-bytes}.
+ */
+@Component
+public class ScoringMemoryBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoringMemoryBudget.class);
+
+    // readers, line buffers and the other per-scoring constants
+    private static final long BASE_BYTES = 64 * 1024;
+    // a boxed Double plus its slot in a growing ArrayList
+    private static final long BOXED_VALUE_BYTES = 32;
+    // a row of an id,prediction CSV, when the file size is not known up front
+    private static final long CSV_ROW_BYTES = 24;
+
+    private final int totalKib;
+    private final Semaphore permits;
+
+    public ScoringMemoryBudget(MeterRegistry registry,
+                               @Value("${scoring.memory.budget:0B}") DataSize budget) {
+        long bytes = budget.toBytes() > 0 ? budget.toBytes() : Runtime.getRuntime().maxMemory() / 2;
+        this.totalKib = (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / 1024));
+        this.permits = new Semaphore(totalKib, true);
+
+        Gauge.builder("scoring.memory.budget", () -> totalKib * 1024L)
+                .description("Heap scorings may reserve in total")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("scoring.memory.reserved", () -> (totalKib - permits.availablePermits()) * 1024L)
+                .description("Heap reserved by the scorings running now")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("scoring.memory.waiting", permits::getQueueLength)
+                .description("Scorings waiting for their reservation")
+                .register(registry);
+        log.info("Scoring memory budget: {} MB", totalKib / 1024);
+    }
+
+    /**
+     * Heap one scoring needs, from the prediction file size and the number of rows. Exact scoring
+     * boxes every prediction and the rank-based metrics sort them in primitive arrays; approximate
+     * scoring streams the file, only the histograms of the approximate rank metrics are kept. The
+     * rank-based metrics of a challenge share their arrays, so they count once.
+     * <p>
+     * A packed truth is decoded on access from the cached challenge and takes nothing per scoring; a
+     * truth only stored as CSV is parsed into one boxed value per row, counted even where a re-scoring
+     * job shares one parsed copy between its scorings.
+     *
+     * @param fileBytes   size of the prediction file, or null when not known
+     * @param packedTruth whether the challenge has its truth packed, see {@link GroundTruth}
+     */
+    public static long estimate(Set<Metrics> metrics, boolean approximate, Long fileBytes, int rows,
+                                boolean packedTruth) {
+        boolean ranked = metrics.stream().anyMatch(Metrics::isRankBased);
+        long bytes = BASE_BYTES + (fileBytes != null ? fileBytes : rows * CSV_ROW_BYTES);
+        if (!packedTruth) {
+            bytes += rows * BOXED_VALUE_BYTES;
+        }
+        if (approximate) {
+            return ranked ? bytes + 2L * Metrics.APPROXIMATE_AUC_BINS * Long.BYTES : bytes;
+        }
+        bytes += rows * BOXED_VALUE_BYTES;
+        return ranked ? bytes + (long) rows * Double.BYTES : bytes;
+    }
+
+    /**
+     * Reserves the bytes, waiting at most {@code maxWait}.
+     *
+     * @return the reservation, to be closed when the scoring is done, or null if the wait timed out
+     */
+    public Reservation reserve(long bytes, Duration maxWait) throws InterruptedException {
+        int kib = kib(bytes);
+        return permits.tryAcquire(kib, maxWait.toMillis(), TimeUnit.MILLISECONDS) ? new Reservation(kib) : null;
+    }
+
+    /**
+     * Reserves the bytes, waiting as long as it takes.
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        int kib = kib(bytes);
+        permits.acquire(kib);
+        return new Reservation(kib);
+    }
+
+    private int kib(long bytes) {
+        return (int) Math.min(totalKib, Math.max(1, (bytes + 1023) / 1024));
+    }
+
+    public final class Reservation implements AutoCloseable {
+
+        private final int kib;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(int kib) {
+            this.kib = kib;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release(kib);
+            }
+        }
+    }
+
+    /**
+     * No reservation within the wait; the scoring should be put back on the queue, it has not failed.
+     */
+    public static class Exhausted extends RuntimeException {
+        public Exhausted(long bytes) {
+            super("Scoring memory budget exhausted, " + bytes + " bytes needed");
+        }
+    }
+}
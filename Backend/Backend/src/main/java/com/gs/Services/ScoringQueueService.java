@@ -0,0 +1,128 @@
+package com.gs.Services;
+
+import com.gs.DTO.ScoringQueueEntry;
+import com.gs.Entities.ScoringJob;
+import com.gs.Entities.Submission;
+import com.gs.Enums.ScoringJobStatus;
+import com.gs.Repositories.ScoringJobRepository;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable queue of submissions waiting to be scored, kept in the scoring_jobs table so that every
+ * node's {@link ScoringWorker} can claim from it.
+ */
+@Service
+public class ScoringQueueService {
+
+    private static final String QUEUE_BY_USER = """
+            SELECT user_id, max(team) AS team,
+                   count(*) FILTER (WHERE status = 'QUEUED') AS queued,
+                   count(*) FILTER (WHERE status = 'RUNNING') AS running,
+                   coalesce(extract(epoch FROM LOCALTIMESTAMP - min(created_at) FILTER (WHERE status = 'QUEUED')), 0)
+                       AS oldest_wait_seconds,
+                   avg(extract(epoch FROM started_at - created_at)) FILTER (WHERE status <> 'QUEUED'
+                       AND started_at > LOCALTIMESTAMP - INTERVAL '1 hour') AS recent_wait_seconds
+            FROM scoring_jobs
+            WHERE (status IN ('QUEUED', 'RUNNING') OR started_at > LOCALTIMESTAMP - INTERVAL '1 hour')
+            """;
+
+    private final ScoringJobRepository scoringJobRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // local workers park here between polls, so jobs enqueued on this node start without delay
+    private final Object signal = new Object();
+
+    public ScoringQueueService(ScoringJobRepository scoringJobRepository, JdbcTemplate jdbcTemplate) {
+        this.scoringJobRepository = scoringJobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Queues the submission for scoring. Joins the caller's transaction, so the job only becomes
+     * visible together with the submission it points to.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ScoringJob enqueue(Submission submission) {
+        ScoringJob job = new ScoringJob();
+        job.setSubmissionId(submission.getId());
+        job.setChallengeId(submission.getChallengeId());
+        if (submission.getUser() != null) {
+            job.setUserId(submission.getUser().getId());
+            job.setTeam(StringUtils.hasText(submission.getUser().getTeam()) ? submission.getUser().getTeam() : null);
+        }
+        job.setFileBytes(submission.getFile() != null ? (long) submission.getFile().length : null);
+        job.setStatus(ScoringJobStatus.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setAvailableAt(job.getCreatedAt());
+        ScoringJob saved = scoringJobRepository.save(job);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ScoringJob> getJobBySubmissionId(Long submissionId) {
+        return scoringJobRepository.findFirstBySubmissionIdOrderByIdDesc(submissionId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScoringJob> getDeadJobs() {
+        return scoringJobRepository.findByStatusOrderByIdDesc(ScoringJobStatus.DEAD);
+    }
+
+    /**
+     * Queue depth and wait times per user, the longest queues first.
+     */
+    @Transactional(readOnly = true)
+    public List<ScoringQueueEntry> getQueueByUser() {
+        return jdbcTemplate.query(QUEUE_BY_USER + " GROUP BY user_id ORDER BY queued DESC, oldest_wait_seconds DESC",
+                new DataClassRowMapper<>(ScoringQueueEntry.class));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ScoringQueueEntry> getQueueOfUser(Long userId) {
+        return jdbcTemplate.query(QUEUE_BY_USER + " AND user_id = ? GROUP BY user_id",
+                new DataClassRowMapper<>(ScoringQueueEntry.class), userId).stream().findFirst();
+    }
+
+    /**
+     * Puts a dead-lettered job back on the queue, e.g. after the challenge's ground truth was fixed.
+     */
+    public ScoringJob retry(Long id) {
+        ScoringJob job = scoringJobRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Scoring job not found: " + id));
+        if (scoringJobRepository.requeue(id) == 0) {
+            throw new IllegalStateException("Only dead-lettered jobs can be retried, job " + id + " is " + job.getStatus());
+        }
+        wakeUp();
+        return scoringJobRepository.findById(id).orElseThrow();
+    }
+
+    void awaitWork(long timeoutMillis) throws InterruptedException {
+        synchronized (signal) {
+            signal.wait(timeoutMillis);
+        }
+    }
+
+    void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+}
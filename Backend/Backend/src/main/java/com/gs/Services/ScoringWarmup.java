@@ -0,0 +1,93 @@
+package com.gs.Services;
+
+import com.gs.Enums.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Runs the CSV parser and every metric kernel on synthetic data until the JIT has compiled them.
+ * Runners finish before the application reports ready, so the readiness probe only turns green
+ * once the first real submission will be scored by compiled code.
+ */
+@Component
+public class ScoringWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoringWarmup.class);
+
+    // checked at run time rather than through a bean condition, which AOT processing would freeze
+    private final boolean enabled;
+    private final int rows;
+    private final int rounds;
+    private final Duration maxDuration;
+
+    public ScoringWarmup(@Value("${scoring.warmup.enabled:false}") boolean enabled,
+                         @Value("${scoring.warmup.rows:10000}") int rows,
+                         @Value("${scoring.warmup.rounds:300}") int rounds,
+                         @Value("${scoring.warmup.max-duration:15s}") Duration maxDuration) {
+        this.enabled = enabled;
+        this.rows = rows;
+        this.rounds = rounds;
+        this.maxDuration = maxDuration;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        SplittableRandom random = new SplittableRandom(42);
+        byte[] truthFile = csv(random, true);
+        byte[] predictionFile = csv(random, false);
+        BitSet publicRows = Metrics.partitionRows(rows, 0.5, 42);
+
+        int round = 0;
+        double sink = 0;
+        while (round < rounds && System.nanoTime() < deadline) {
+            List<Double> predictions = Metrics.loadValuesFromCsv(predictionFile);
+            for (Metrics metric : Metrics.values()) {
+                // scoring reads the truth through its packed form
+                GroundTruth parsed = GroundTruth.parse(new ByteArrayInputStream(truthFile), metric);
+                List<Double> truth = GroundTruth.values(parsed.packed(), parsed.rows(), metric);
+                sink += metric.calculate(predictions, truth);
+                sink += metric.calculateSplit(predictions, truth, publicRows).publicScore();
+                sink += metric.calculateSplit(new ByteArrayInputStream(predictionFile), truth, publicRows, true)
+                        .publicScore();
+                if (metric == Metrics.RMSE || metric == Metrics.ROC_AUC) {
+                    // the fused pass, with every metric that reads the same kind of truth
+                    Set<Metrics> fused = EnumSet.copyOf(Arrays.stream(Metrics.values())
+                            .filter(m -> m.hasLabels() == metric.hasLabels()).toList());
+                    sink += Metrics.calculateAll(fused, predictions, truth, publicRows).get(metric).publicScore();
+                }
+            }
+            round++;
+        }
+        log.info("Warmed up scoring kernels in {} ms ({} rounds of {} rows, checksum {})",
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), round, rows, sink);
+    }
+
+    private byte[] csv(SplittableRandom random, boolean labels) {
+        StringBuilder csv = new StringBuilder(rows * 16).append("id,value\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(',').append(labels ? random.nextInt(2) : random.nextDouble()).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,231 @@
+package com.gs.Services;
+
+import com.gs.Config.ReplicaRoutingDataSource;
+import com.gs.Entities.ScoringJob;
+import com.gs.Enums.Metrics;
+import com.gs.Repositories.ScoringJobRepository;
+import com.gs.Repositories.SubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claims scoring jobs from the shared queue and scores them, on every node of the cluster. Claimed
+ * jobs carry a lease that is extended by a heartbeat while the node is alive; jobs of a node that
+ * died become claimable again once their lease expires. Files that cannot be parsed are dead-lettered
+ * straight away, any other failure is retried with exponential backoff.
+ * <p>
+ * Claims go round-robin between teams and cap the jobs a user has running at once, so one team's burst of
+ * uploads cannot hold back everyone else's scores. {@code scoring.queue.small-lane-workers} of the
+ * workers only take files up to {@code scoring.queue.small-file-size}, so quick submissions never queue
+ * behind large ones.
+ */
+@Component
+public class ScoringWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoringWorker.class);
+
+    private final ScoringJobRepository scoringJobRepository;
+    private final SubmissionRepository submissionRepository;
+    private final ScoringQueueService scoringQueueService;
+    private final SubmissionService submissionService;
+    private final SubmissionMetrics submissionMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int workerCount;
+    private final long pollIntervalMillis;
+    private final double leaseSeconds;
+    private final Duration backoff;
+    private final int maxAttempts;
+    private final int smallLaneWorkers;
+    private final long smallFileBytes;
+    private final int maxRunningPerUser;
+
+    private final String nodeId;
+    // jobs currently held by this node, kept alive by the heartbeat
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public ScoringWorker(ScoringJobRepository scoringJobRepository,
+                         SubmissionRepository submissionRepository,
+                         ScoringQueueService scoringQueueService,
+                         SubmissionService submissionService,
+                         SubmissionMetrics submissionMetrics,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${scoring.queue.workers:0}") int workers,
+                         @Value("${scoring.queue.poll-interval:500ms}") Duration pollInterval,
+                         @Value("${scoring.queue.lease:30s}") Duration lease,
+                         @Value("${scoring.queue.backoff:2s}") Duration backoff,
+                         @Value("${scoring.queue.max-attempts:5}") int maxAttempts,
+                         @Value("${scoring.queue.small-lane-workers:1}") int smallLaneWorkers,
+                         @Value("${scoring.queue.small-file-size:1MB}") DataSize smallFileSize,
+                         @Value("${scoring.queue.max-running-per-user:2}") int maxRunningPerUser) {
+        this.scoringJobRepository = scoringJobRepository;
+        this.submissionRepository = submissionRepository;
+        this.scoringQueueService = scoringQueueService;
+        this.submissionService = submissionService;
+        this.submissionMetrics = submissionMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.workerCount = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.leaseSeconds = lease.toMillis() / 1000.0;
+        this.backoff = backoff;
+        this.maxAttempts = maxAttempts;
+        // at least one worker takes files of any size
+        this.smallLaneWorkers = Math.max(0, Math.min(smallLaneWorkers, workerCount - 1));
+        this.smallFileBytes = smallFileSize.toBytes();
+        this.maxRunningPerUser = maxRunningPerUser;
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            boolean smallLane = i < smallLaneWorkers;
+            Thread worker = new Thread(() -> poll(smallLane), (smallLane ? "scoring-worker-small-" : "scoring-worker-") + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Started {} scoring workers as {}, {} of them for files up to {} bytes",
+                workerCount, nodeId, smallLaneWorkers, smallFileBytes);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        // whatever is still claimed is picked up by another node once the lease runs out
+    }
+
+    // well inside the lease, so a couple of heartbeats can be missed before another node takes over
+    @Scheduled(fixedDelayString = "${scoring.queue.heartbeat:10000}")
+    public void heartbeat() {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        try {
+            scoringJobRepository.heartbeat(List.copyOf(claimed), nodeId, leaseSeconds);
+        } catch (RuntimeException e) {
+            log.warn("Could not extend scoring leases: {}", e.getMessage());
+        }
+    }
+
+    private void poll(boolean smallLane) {
+        String lane = smallLane ? "small" : "any";
+        long maxBytes = smallLane ? smallFileBytes : Long.MAX_VALUE;
+        // a job is claimed right after its submission committed, a lagging replica may not have the file yet
+        ReplicaRoutingDataSource.forcePrimary(true);
+        while (running) {
+            try {
+                Optional<ScoringJob> job = scoringJobRepository.claimNext(nodeId, leaseSeconds, maxBytes, maxRunningPerUser);
+                if (job.isPresent()) {
+                    if (job.get().getAttempts() == 1 && job.get().getStartedAt() != null) {
+                        submissionMetrics.recordQueueWait(lane, Duration.between(job.get().getCreatedAt(), job.get().getStartedAt()));
+                    }
+                    process(job.get());
+                } else {
+                    scoringQueueService.awaitWork(pollIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Scoring queue unavailable: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(ScoringJob job) {
+        claimed.add(job.getId());
+        try {
+            SubmissionService.Scored scored = submissionService.scoreSubmission(job.getSubmissionId(),
+                    job.getChallengeId(), job.getFileBytes());
+            long stageStart = System.nanoTime();
+            Boolean completed = transactionTemplate.execute(status -> {
+                if (scoringJobRepository.complete(job.getId(), nodeId) == 0) {
+                    // the lease ran out and another node has the job now, leave the result to it
+                    status.setRollbackOnly();
+                    return false;
+                }
+                submissionRepository.updateScores(job.getSubmissionId(),
+                        scored.split().publicScoreOrNull(), scored.split().privateScoreOrNull(),
+                        Metrics.packPublicScores(scored.splits()));
+                return true;
+            });
+            submissionMetrics.recordStage("persist", scored.tags(), stageStart);
+            // without public rows there is nothing to rank on the live boards
+            if (Boolean.TRUE.equals(completed) && scored.split().publicScoreOrNull() != null) {
+                submissionService.publishScore(job.getSubmissionId(), job.getChallengeId(),
+                        scored.metric(), scored.split().publicScore());
+            }
+        } catch (ScoringMemoryBudget.Exhausted e) {
+            // not the job's fault, back in line without using up an attempt
+            log.info("Putting scoring job {} back on the queue: {}", job.getId(), e.getMessage());
+            scoringJobRepository.release(job.getId(), nodeId, backoff.toMillis() / 1000.0);
+        } catch (IllegalArgumentException e) {
+            deadLetter(job, e);
+        } catch (RuntimeException e) {
+            if (job.getAttempts() >= maxAttempts) {
+                deadLetter(job, e);
+            } else {
+                long delay = backoff.toMillis() << Math.min(job.getAttempts() - 1, 16);
+                log.warn("Scoring submission {} failed (attempt {}), retrying in {} ms: {}",
+                        job.getSubmissionId(), job.getAttempts(), delay, e.getMessage());
+                scoringJobRepository.retryLater(job.getId(), nodeId, delay / 1000.0, message(e));
+            }
+        } finally {
+            claimed.remove(job.getId());
+        }
+    }
+
+    private void deadLetter(ScoringJob job, RuntimeException e) {
+        log.warn("Dead-lettering scoring job {} of submission {} after {} attempts: {}",
+                job.getId(), job.getSubmissionId(), job.getAttempts(), message(e));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (scoringJobRepository.deadLetter(job.getId(), nodeId, message(e)) > 0) {
+                submissionRepository.updateFeedback(job.getSubmissionId(), "Scoring failed: " + message(e));
+            }
+        });
+    }
+
+    // parse failures wrap the cause, which carries the useful part
+    private static String message(Throwable e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return e.getCause() != null && e.getCause().getMessage() != null
+                ? message + ": " + e.getCause().getMessage()
+                : message;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.gs.Services;
+
+import com.gs.Config.ReplicaRoutingDataSource;
+import com.gs.DTO.SubmissionFile;
+import com.gs.Repositories.SubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves the files of closed challenges out of the submissions table into compressed pack files,
+ * see {@link ArchiveStore}. Runs in small batches with a pause in between so it never competes with
+ * live traffic for long; rows a concurrent archiver on another node holds are skipped. A batch ends at
+ * {@code archive.batch-size} files or once its files add up to {@code archive.batch-bytes}, whichever
+ * comes first, so a challenge of large uploads is not held in the heap a batch at a time.
+ */
+@Component
+public class SubmissionArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionArchiver.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final ArchiveStore archiveStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // checked at run time rather than through a bean condition, which AOT processing would freeze
+    private final boolean enabled;
+    private final int batchSize;
+    private final long batchBytes;
+    private final long pauseMillis;
+    private final String node;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private Boolean largeObjects;
+
+    public SubmissionArchiver(SubmissionRepository submissionRepository,
+                              ArchiveStore archiveStore,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${archive.enabled:true}") boolean enabled,
+                              @Value("${archive.batch-size:50}") int batchSize,
+                              @Value("${archive.batch-bytes:64MB}") DataSize batchBytes,
+                              @Value("${archive.pause:500ms}") Duration pause) {
+        this.submissionRepository = submissionRepository;
+        this.archiveStore = archiveStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.batchBytes = batchBytes.toBytes();
+        this.pauseMillis = pause.toMillis();
+        this.node = hostName();
+    }
+
+    // runs on its own thread, a long pass must not hold up the shared scheduler and with it the
+    // leaderboard pushes and scoring lease heartbeats
+    @Scheduled(fixedDelayString = "${archive.interval:600000}", initialDelayString = "${archive.initial-delay:60000}")
+    public void scheduleArchival() {
+        if (enabled && running.compareAndSet(false, true)) {
+            runner.execute(() -> {
+                // a lagging replica would list files this or another node already moved out
+                ReplicaRoutingDataSource.forcePrimary(true);
+                try {
+                    archiveClosedChallenges();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void archiveClosedChallenges() {
+        try {
+            for (Long challengeId : submissionRepository.findChallengeIdsWithUnarchivedFiles(new Date())) {
+                int archived = archiveChallenge(challengeId);
+                if (archived > 0) {
+                    log.info("Archived {} submission files of challenge {}", archived, challengeId);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Submission archival stopped: {}", e.getMessage());
+        }
+    }
+
+    private int archiveChallenge(Long challengeId) throws InterruptedException {
+        // one pack per challenge and node, so archivers on different nodes never append to the same file
+        String pack = "challenge-" + challengeId + "-" + node + ".pack";
+        int total = 0;
+        int archived;
+        while ((archived = archiveBatch(challengeId, pack)) > 0) {
+            total += archived;
+            Thread.sleep(pauseMillis);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Long challengeId, String pack) {
+        Integer archived = transactionTemplate.execute(status -> {
+            List<SubmissionFile> batch = new ArrayList<>();
+            long bytes = 0;
+            // rows locked but left over once the byte cap is reached go into the next batch
+            for (Long id : submissionRepository.lockUnarchivedIds(challengeId, batchSize)) {
+                if (bytes >= batchBytes) {
+                    break;
+                }
+                SubmissionFile file = submissionRepository.findFileById(id).orElseThrow();
+                batch.add(file);
+                bytes += file.file().length;
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<ArchiveStore.Entry> entries;
+            try {
+                entries = archiveStore.append(pack, batch.stream().map(SubmissionFile::file).toList());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (usesLargeObjects()) {
+                // nulling an oid column leaves the large object behind, it has to be unlinked explicitly
+                jdbcTemplate.queryForList("SELECT lo_unlink(file) FROM submissions WHERE id = ANY(?)", Integer.class,
+                        (Object) batch.stream().map(SubmissionFile::submissionId).toArray(Long[]::new));
+            }
+            // plain updates, the entities would keep a second copy of every file for dirty checking
+            List<Object[]> updates = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                updates.add(new Object[]{pack, entries.get(i).offset(), entries.get(i).length(),
+                        batch.get(i).submissionId()});
+            }
+            jdbcTemplate.batchUpdate("UPDATE submissions SET file = NULL, archive_pack = ?, archive_offset = ?, "
+                    + "archive_length = ? WHERE id = ?", updates);
+            return batch.size();
+        });
+        return archived != null ? archived : 0;
+    }
+
+    private boolean usesLargeObjects() {
+        if (largeObjects == null) {
+            largeObjects = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                try (ResultSet columns = connection.getMetaData().getColumns(null, null, "submissions", "file")) {
+                    return columns.next() && "oid".equalsIgnoreCase(columns.getString("TYPE_NAME"));
+                }
+            });
+        }
+        return largeObjects;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
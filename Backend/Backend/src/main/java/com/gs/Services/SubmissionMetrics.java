@@ -0,0 +1,108 @@
+package com.gs.Services;
+
+import com.gs.Enums.Metrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the submission pipeline. Every stage (upload, parse, score, persist)
+ * is a {@code submission.stage} timer tagged by challenge and metric.
+ */
+@Component
+public class SubmissionMetrics {
+
+    private final MeterRegistry registry;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    public SubmissionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.threadBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+    }
+
+    public Tags tags(Long challengeId, Metrics metric) {
+        return Tags.of("challenge", String.valueOf(challengeId), "metric", metric.name());
+    }
+
+    /**
+     * Records the stage as running from {@code startNanos} until now and returns now,
+     * so consecutive stages can be chained.
+     */
+    public long recordStage(String stage, Tags tags, long startNanos) {
+        long now = System.nanoTime();
+        Timer.builder("submission.stage")
+                .description("Duration of a submission pipeline stage")
+                .tags(tags)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void recordSize(Tags tags, long bytes, int rows) {
+        DistributionSummary.builder("submission.bytes")
+                .description("Size of the uploaded prediction file")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry)
+                .record(bytes);
+        DistributionSummary.builder("submission.rows")
+                .description("Rows in the uploaded prediction file")
+                .baseUnit("rows")
+                .tags(tags)
+                .register(registry)
+                .record(rows);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 when the JVM does not track it.
+     */
+    public long allocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * The footprint a scoring reserved from the {@link ScoringMemoryBudget}, to compare with what
+     * {@code submission.allocated} says it actually allocated.
+     */
+    public void recordMemoryEstimate(Tags tags, long bytes) {
+        DistributionSummary.builder("scoring.memory.estimate")
+                .description("Heap reserved for scoring one submission")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordAllocation(Tags tags, long allocatedAtStart) {
+        if (allocatedAtStart < 0) {
+            return;
+        }
+        DistributionSummary.builder("submission.allocated")
+                .description("Heap allocated while handling one submission")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry)
+                .record(allocatedBytes() - allocatedAtStart);
+    }
+
+    /**
+     * Time a job waited in the scoring queue before its first claim, by the worker lane that claimed it.
+     */
+    public void recordQueueWait(String lane, Duration wait) {
+        Timer.builder("scoring.queue.wait")
+                .description("Time from enqueueing a submission until a worker claims it")
+                .tag("lane", lane)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(wait);
+    }
+}
@@ -0,0 +1,125 @@
+package com.gs.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps the submissions table partitioned by challenge on PostgreSQL. On startup the table Hibernate
+ * manages is converted once by {@code db/partition-submissions.sql}; afterwards every challenge gets
+ * its own partition when it is saved, and deleting a challenge detaches and drops that partition
+ * instead of deleting its rows one by one.
+ * <p>
+ * Runs as a runner, after the context is refreshed and before the application reports ready, so the
+ * conversion never races live traffic, and before the other runners, so their scripts see the converted
+ * table. On other databases the table stays as it is.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SubmissionPartitions implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionPartitions.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // checked at run time rather than through a bean condition, which AOT processing would freeze
+    private final boolean enabled;
+
+    private volatile boolean partitioned;
+
+    public SubmissionPartitions(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${submissions.partitioning.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        String script = new ClassPathResource("db/partition-submissions.sql").getContentAsString(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute(script));
+        partitioned = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('submissions'))",
+                Boolean.class));
+        log.info("Submissions partitioned by challenge: {} (checked in {} ms)",
+                partitioned, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Creates the challenge's partition if it does not exist yet, in a short transaction of its own. Call
+     * it outside other transactions, once the challenge committed: the partition locks the submissions
+     * table exclusively until the transaction it runs in ends.
+     */
+    public void createPartition(Long challengeId) {
+        if (!partitioned) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition(challengeId)
+                        + " PARTITION OF submissions FOR VALUES IN (" + challengeId + ")");
+                jdbcTemplate.execute("DO $$ BEGIN ALTER TABLE " + partition(challengeId) + " ADD PRIMARY KEY (id); "
+                        + "EXCEPTION WHEN invalid_table_definition THEN NULL; END $$");
+            });
+        } catch (DataAccessException e) {
+            // e.g. rows of this challenge already sit in the default partition; they keep working there
+            log.warn("Could not create submissions partition for challenge {}: {}", challengeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes all submissions of the challenge by dropping its partition. Returns false when the
+     * table is not partitioned, leaving the rows in place.
+     */
+    public boolean dropPartition(Long challengeId) {
+        if (!partitioned) {
+            return false;
+        }
+        String partition = partition(challengeId);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition)) {
+            if (fileIsLargeObject()) {
+                // dropping the rows would leave their large objects behind
+                jdbcTemplate.queryForList("SELECT lo_unlink(file) FROM " + partition + " WHERE file IS NOT NULL");
+            }
+            jdbcTemplate.update("DELETE FROM scoring_jobs WHERE submission_id IN (SELECT id FROM " + partition + ")");
+            jdbcTemplate.execute("ALTER TABLE submissions DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+        return true;
+    }
+
+    private boolean fileIsLargeObject() {
+        return "oid".equals(jdbcTemplate.queryForObject(
+                "SELECT udt_name FROM information_schema.columns WHERE table_name = 'submissions' AND column_name = 'file'",
+                String.class));
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    // ids are numbers, so the name needs no quoting
+    private static String partition(Long challengeId) {
+        return "submissions_c" + challengeId;
+    }
+}
@@ -1,69 +1,282 @@
 package com.gs.Services;
 
+import com.gs.DTO.SubmissionDTO;
+import com.gs.DTO.SubmissionUpdate;
 import com.gs.Entities.Challenge;
 import com.gs.Entities.Submission;
+import com.gs.Entities.User;
 import com.gs.Enums.Metrics;
 import com.gs.Repositories.SubmissionRepository;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class SubmissionService {
 
     private final SubmissionRepository submissionRepository;
     private final ChallengeService challengeService;
+    private final SubmissionMetrics submissionMetrics;
+    private final UserService userService;
+    private final LeaderboardService leaderboardService;
+    private final TeamStandingService teamStandingService;
+    private final ChallengeAnalyticsService challengeAnalyticsService;
+    private final ScoringQueueService scoringQueueService;
+    private final SubmissionValidator submissionValidator;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchiveStore archiveStore;
+    private final ScoringMemoryBudget memoryBudget;
+    private final Duration memoryWait;
 
-    public SubmissionService(SubmissionRepository submissionRepository, ChallengeService challengeService) {
+    public SubmissionService(SubmissionRepository submissionRepository, ChallengeService challengeService,
+                             SubmissionMetrics submissionMetrics, UserService userService,
+                             LeaderboardService leaderboardService, TeamStandingService teamStandingService,
+                             ChallengeAnalyticsService challengeAnalyticsService,
+                             ScoringQueueService scoringQueueService, SubmissionValidator submissionValidator,
+                             TransactionTemplate transactionTemplate, ArchiveStore archiveStore,
+                             ScoringMemoryBudget memoryBudget,
+                             @Value("${scoring.memory.max-wait:30s}") Duration memoryWait) {
         this.submissionRepository = submissionRepository;
         this.challengeService = challengeService;
+        this.submissionMetrics = submissionMetrics;
+        this.userService = userService;
+        this.leaderboardService = leaderboardService;
+        this.teamStandingService = teamStandingService;
+        this.challengeAnalyticsService = challengeAnalyticsService;
+        this.scoringQueueService = scoringQueueService;
+        this.submissionValidator = submissionValidator;
+        this.transactionTemplate = transactionTemplate;
+        this.archiveStore = archiveStore;
+        this.memoryBudget = memoryBudget;
+        this.memoryWait = memoryWait;
     }
 
-    public List<Submission> getAllSubmissions() {
-        return submissionRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<SubmissionDTO> getAllSubmissions() {
+        return submissionRepository.findAllDtos();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Submission> getSubmissionById(Long id) {
         return submissionRepository.findById(id);
     }
 
-    public List<Submission> getSubmissionsByChallengeId(Long challengeId) {
-        return submissionRepository.findByChallengeId(challengeId);
+    @Transactional(readOnly = true)
+    public Optional<SubmissionDTO> getSubmissionDtoById(Long id) {
+        return submissionRepository.findDtoById(id);
     }
 
-    public List<Submission> getSubmissionsByUserId(Long userId) {
-        return submissionRepository.findByUser_Id(userId);
+    @Transactional(readOnly = true)
+    public List<SubmissionDTO> getSubmissionsByChallengeId(Long challengeId) {
+        return submissionRepository.findDtosByChallengeId(challengeId);
     }
 
-//    public Submission saveSubmission(Submission submission) {
-//        return submissionRepository.save(submission);
-//    }
+    @Transactional(readOnly = true)
+    public List<SubmissionDTO> getSubmissionsByUserId(Long userId) {
+        return submissionRepository.findDtosByUserId(userId);
+    }
+
+    /**
+     * The uploaded file, read back from its pack if it was archived.
+     */
+    public Optional<byte[]> getSubmissionFile(Long id) {
+        return submissionRepository.findFileById(id).map(archiveStore::contents);
+    }
+
+    /**
+     * Applies the fields of the update that are set in one statement, without reading or rewriting the
+     * file. A changed score goes to the live leaderboard and the team standings.
+     *
+     * @param expectedVersion the version the edit is based on, from If-Match; not checked when null
+     * @return the edited submission, empty if there is none with the id
+     * @throws OptimisticLockingFailureException if the submission was edited since that version
+     */
+    public Optional<SubmissionDTO> updateSubmission(Long id, SubmissionUpdate update, Long expectedVersion) {
+        Optional<SubmissionDTO> updated = transactionTemplate.execute(status -> {
+            // where the primary metric's public score sits in metric_scores, written along with the score
+            int offset = 0;
+            int ordinal = -1;
+            if (update.score() != null) {
+                Optional<Challenge> challenge = submissionRepository.findChallengeIdById(id)
+                        .flatMap(challengeService::getChallengeById);
+                if (challenge.isPresent()) {
+                    Metrics metric = Metrics.getEnumFromMetric(challenge.get().getMetric());
+                    offset = Metrics.packedOffset(ChallengeService.metrics(challenge.get()), metric);
+                    ordinal = metric.ordinal();
+                }
+            }
+            if (submissionRepository.patch(id, update.score(), update.feedback(), expectedVersion, offset, ordinal) == 0) {
+                if (submissionRepository.existsById(id)) {
+                    throw new OptimisticLockingFailureException(
+                            "Submission " + id + " was edited since version " + expectedVersion);
+                }
+                return Optional.empty();
+            }
+            return submissionRepository.findDtoById(id);
+        });
+        if (update.score() != null && updated.isPresent()) {
+            SubmissionDTO submission = updated.get();
+            if (submission.challengeId() != null) {
+                leaderboardService.onScore(submission.challengeId(), submission.userId(), id, update.score());
+                challengeAnalyticsService.onScoresChanged(submission.challengeId());
+            }
+            // the score changed in place, so the team's best has to be re-aggregated
+            submissionRepository.findUserById(id).ifPresent(user -> teamStandingService.rebuildTeam(user.getTeam()));
+        }
+        return updated;
+    }
 
     public void deleteSubmission(Long id) {
         submissionRepository.deleteById(id);
     }
 
-    public Submission handleSubmission(MultipartFile file, Long challengeId) throws IOException {
+    public Submission handleSubmission(MultipartFile file, Long challengeId, Long userId) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            return handleSubmission(content, file.getSize(), file.getOriginalFilename(), challengeId, userId);
+        }
+    }
 
-        Optional<Challenge> challenge = challengeService.getChallengeById(challengeId);
+    /**
+     * Validates the upload while it is read, stores it and queues it for scoring; the score is filled
+     * in by a {@link ScoringWorker} on whichever node claims the job.
+     *
+     * @param size the declared size in bytes, or -1 when unknown
+     * @throws NotFound if the challenge or the user does not exist
+     * @throws org.springframework.web.server.ResponseStatusException with a 4xx status if the upload is rejected
+     */
+    public Submission handleSubmission(InputStream content, long size, String fileName, Long challengeId,
+                                       Long userId) throws IOException {
+
+        Challenge challenge = challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new NotFound("Challenge not found: " + challengeId));
+        Metrics metric = Metrics.getEnumFromMetric(challenge.getMetric());
+        User user = userId == null ? null : userService.getUserById(userId)
+                .orElseThrow(() -> new NotFound("User not found: " + userId));
+        submissionValidator.checkDeclaredSize(challenge, size);
+
+        Tags tags = submissionMetrics.tags(challengeId, metric);
+        long start = System.nanoTime();
 
         Submission submission = new Submission();
         submission.setSubmissionDate(LocalDateTime.now());
-        submission.setFile(file.getBytes());
-        submission.setFileName(file.getOriginalFilename());
+        submission.setFile(submissionValidator.read(challenge, content));
+        submission.setFileName(fileName);
+        submission.setChallengeId(challengeId);
+        submission.setUser(user);
+        long stageStart = submissionMetrics.recordStage("upload", tags, start);
 
+        transactionTemplate.executeWithoutResult(status -> {
+            submissionRepository.save(submission);
+            scoringQueueService.enqueue(submission);
+        });
+        submissionMetrics.recordStage("enqueue", tags, stageStart);
+        challengeAnalyticsService.onScoresChanged(challengeId);
+        return submission;
+    }
 
+    /**
+     * Scores a stored submission against its challenge without writing anything back. The primary and
+     * the secondary metrics come out of one parse of the file and one pass over the rows. Runs within
+     * the {@link ScoringMemoryBudget}, waiting up to {@code scoring.memory.max-wait} for its share.
+     *
+     * @param fileBytes size of the prediction file if known, for the memory estimate
+     * @throws IllegalArgumentException if the submission or the ground truth cannot be scored at all
+     * @throws ScoringMemoryBudget.Exhausted if the memory budget stayed taken for the whole wait
+     */
+    public Scored scoreSubmission(Long submissionId, Long challengeId, Long fileBytes) {
+        Challenge challenge = challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        Metrics metric = Metrics.getEnumFromMetric(challenge.getMetric());
+        Set<Metrics> metrics = ChallengeService.metrics(challenge);
+        boolean approximate = Boolean.TRUE.equals(challenge.getApproximateScoring());
+        int truthRows = challenge.getTruthRows() != null ? challenge.getTruthRows() : 0;
 
-        double score = Metrics.getEnumFromMetric(challenge.get().getMetric()).calculate(submission.getFile(), challenge.get().getGroundSourceFile());
-        submission.setScore(score);
+        Tags tags = submissionMetrics.tags(challengeId, metric);
+        long estimate = ScoringMemoryBudget.estimate(metrics, approximate, fileBytes, truthRows,
+                ChallengeService.hasPackedTruth(challenge));
+        ScoringMemoryBudget.Reservation reservation;
+        try {
+            reservation = memoryBudget.reserve(estimate, memoryWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScoringMemoryBudget.Exhausted(estimate);
+        }
+        if (reservation == null) {
+            throw new ScoringMemoryBudget.Exhausted(estimate);
+        }
 
-        submissionRepository.save(submission);
-        return submission;
+        try (reservation) {
+            long allocatedAtStart = submissionMetrics.allocatedBytes();
+            long start = System.nanoTime();
+
+            byte[] file = submissionRepository.findFileById(submissionId).map(archiveStore::contents).orElse(null);
+            if (file == null) {
+                throw new IllegalArgumentException("Submission has no file: " + submissionId);
+            }
+            long stageStart = submissionMetrics.recordStage("load", tags, start);
+
+            Map<Metrics, Metrics.Split> splits;
+            int rows;
+            if (approximate) {
+                // parsed and scored in one pass, so the score stage includes parsing
+                splits = Metrics.calculateAll(metrics, new ByteArrayInputStream(file),
+                        challengeService.truthValues(challenge), ChallengeService.publicRows(challenge), true);
+                rows = truthRows;
+            } else {
+                List<Double> predictions = Metrics.loadValuesFromCsv(file);
+                List<Double> truth = challengeService.truthValues(challenge);
+                stageStart = submissionMetrics.recordStage("parse", tags, stageStart);
+
+                splits = Metrics.calculateAll(metrics, predictions, truth, ChallengeService.publicRows(challenge));
+                rows = predictions.size();
+            }
+            submissionMetrics.recordStage("score", tags, stageStart);
+
+            submissionMetrics.recordSize(tags, file.length, rows);
+            submissionMetrics.recordMemoryEstimate(tags, estimate);
+            submissionMetrics.recordAllocation(tags, allocatedAtStart);
+            return new Scored(metric, splits, tags);
+        }
+    }
+
+    /**
+     * Pushes a score that was just written back to the live leaderboard and the team standings.
+     */
+    public void publishScore(Long submissionId, Long challengeId, Metrics metric, double score) {
+        Optional<User> user = submissionRepository.findUserById(submissionId);
+        leaderboardService.onScore(challengeId, user.map(User::getId).orElse(null), submissionId, score);
+        challengeAnalyticsService.onScoresChanged(challengeId);
+        user.ifPresent(u -> teamStandingService.recordScore(challengeId, u.getTeam(), metric, score));
+    }
+
+    public record Scored(Metrics metric, Map<Metrics, Metrics.Split> splits, Tags tags) {
+        public Metrics.Split split() {
+            return splits.get(metric);
+        }
     }
 
 
+
+    /**
+     * The challenge or the user a submission is for does not exist.
+     */
+    public static class NotFound extends RuntimeException {
+        public NotFound(String message) {
+            super(message);
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package com.gs.Services;
+
+import com.gs.Entities.Challenge;
+import com.gs.Enums.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks an uploaded prediction file against the shape of the challenge's ground truth while it is
+ * being read, so a broken upload is rejected at the first bad line instead of after it was stored
+ * and scored. Files that pass are guaranteed to parse with {@link Metrics#loadValuesFromCsv}.
+ */
+@Component
+public class SubmissionValidator {
+
+    private final long defaultMaxUploadBytes;
+
+    // for challenges saved before the truth shape was stored with them
+    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+    public SubmissionValidator(@Value("${submission.max-upload-size:10MB}") DataSize defaultMaxUploadSize,
+                               InvalidationBus invalidationBus) {
+        this.defaultMaxUploadBytes = defaultMaxUploadSize.toBytes();
+        invalidationBus.subscribe(InvalidationBus.CHALLENGE, new InvalidationBus.Listener() {
+            @Override
+            public void evict(long challengeId) {
+                schemas.remove(challengeId);
+            }
+
+            @Override
+            public void evictAll() {
+                schemas.clear();
+            }
+        });
+    }
+
+    public long maxUploadBytes(Challenge challenge) {
+        return challenge.getMaxUploadBytes() != null ? challenge.getMaxUploadBytes() : defaultMaxUploadBytes;
+    }
+
+    /**
+     * Rejects an upload whose declared size is over the challenge's limit. Called before anything is read.
+     */
+    public void checkDeclaredSize(Challenge challenge, long size) {
+        long limit = maxUploadBytes(challenge);
+        if (size > limit) {
+            throw tooLarge(limit);
+        }
+    }
+
+    /**
+     * Reads and validates the upload, returning its bytes.
+     *
+     * @throws ResponseStatusException with a 4xx status describing the first problem found
+     */
+    public byte[] read(Challenge challenge, InputStream content) throws IOException {
+        Schema schema = schema(challenge);
+        long limit = maxUploadBytes(challenge);
+        LimitedCapture capture = new LimitedCapture(content, limit);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(capture, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null || header.isBlank()) {
+            throw badRequest("The file is empty");
+        }
+        String[] headerColumns = header.split(",", -1);
+        if (schema.columns() > 0 && headerColumns.length != schema.columns()) {
+            throw badRequest("Header has " + headerColumns.length + " columns, expected " + schema.columns());
+        }
+        if (headerColumns.length > 1 && isNumber(headerColumns[1])) {
+            throw badRequest("The first line must be a header, found values: " + header);
+        }
+
+        int rows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rows++;
+            int lineNumber = rows + 1;
+            String[] parts = line.split(",", -1);
+            if (parts.length < 2 || schema.columns() > 0 && parts.length != schema.columns()) {
+                throw badRequest("Line " + lineNumber + " has " + parts.length + " columns, expected "
+                        + (schema.columns() > 0 ? schema.columns() : "at least 2"));
+            }
+            if (!isNumber(parts[1])) {
+                throw badRequest("Line " + lineNumber + " has a non-numeric value: " + parts[1]);
+            }
+            if (schema.rows() >= 0 && rows > schema.rows()) {
+                throw wrongRowCount("more than " + schema.rows());
+            }
+        }
+        if (schema.rows() >= 0 && rows != schema.rows()) {
+            throw wrongRowCount(String.valueOf(rows));
+        }
+        return capture.bytes();
+    }
+
+    private Schema schema(Challenge challenge) {
+        if (challenge.getTruthColumns() != null && challenge.getTruthRows() != null) {
+            return new Schema(challenge.getTruthColumns(), challenge.getTruthRows());
+        }
+        if (challenge.getGroundSourceFile() == null) {
+            return new Schema(0, -1);
+        }
+        return schemas.computeIfAbsent(challenge.getId(), id -> new Schema(
+                Metrics.countHeaderColumns(challenge.getGroundSourceFile()),
+                Metrics.loadValuesFromCsv(challenge.getGroundSourceFile()).size()));
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            return Double.isFinite(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static ResponseStatusException badRequest(String reason) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
+    }
+
+    private static ResponseStatusException wrongRowCount(String found) {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Expected as many prediction rows as the ground truth has, found " + found);
+    }
+
+    private static ResponseStatusException tooLarge(long limit) {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Uploads for this challenge are limited to " + limit + " bytes");
+    }
+
+    // number of header columns (0 when unknown) and data rows (-1 when unknown)
+    private record Schema(int columns, int rows) {
+    }
+
+    /**
+     * Keeps a copy of every byte read and fails as soon as more than the limit has arrived.
+     */
+    private static final class LimitedCapture extends FilterInputStream {
+        private final long limit;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        LimitedCapture(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                append(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                append(buffer, offset, n);
+            }
+            return n;
+        }
+
+        private void append(byte[] buffer, int offset, int length) {
+            if (copy.size() + (long) length > limit) {
+                throw tooLarge(limit);
+            }
+            copy.write(buffer, offset, length);
+        }
+
+        byte[] bytes() {
+            return copy.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.gs.Services;
+
+import com.gs.DTO.TeamStandingEntry;
+import com.gs.Entities.Challenge;
+import com.gs.Entities.TeamStanding;
+import com.gs.Enums.Metrics;
+import com.gs.Repositories.TeamStandingRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Team standings per challenge, kept in {@code team_standings} and folded in one submission at a time,
+ * so reading them never touches {@code submissions}. Rows are re-aggregated from the submissions only
+ * when scores change in place or a user moves to another team.
+ */
+@Service
+public class TeamStandingService {
+
+    private final TeamStandingRepository teamStandingRepository;
+    private final ChallengeService challengeService;
+
+    public TeamStandingService(TeamStandingRepository teamStandingRepository, ChallengeService challengeService) {
+        this.teamStandingRepository = teamStandingRepository;
+        this.challengeService = challengeService;
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeamStandingEntry> getStandings(Long challengeId) {
+        Challenge challenge = challengeService.getChallengeById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Challenge not found: " + challengeId));
+        Metrics metric = Metrics.getEnumFromMetric(challenge.getMetric());
+
+        List<TeamStanding> rows = new ArrayList<>(teamStandingRepository.findByChallengeId(challengeId));
+        rows.removeIf(row -> row.getBestScore() == null);
+        rows.sort((a, b) -> metric.compareScores(a.getBestScore(), b.getBestScore()));
+
+        List<TeamStandingEntry> standings = new ArrayList<>(rows.size());
+        int rank = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            TeamStanding row = rows.get(i);
+            if (i == 0 || Double.compare(row.getBestScore(), rows.get(i - 1).getBestScore()) != 0) {
+                rank = i + 1;
+            }
+            standings.add(new TeamStandingEntry(rank, row.getTeam(), row.getBestScore(), row.getSubmissionCount()));
+        }
+        return standings;
+    }
+
+    public void recordScore(Long challengeId, String team, Metrics metric, double score) {
+        if (StringUtils.hasText(team)) {
+            teamStandingRepository.recordScore(challengeId, team, score, metric.isHigherBetter());
+        }
+    }
+
+    @Transactional
+    public void rebuildTeam(String team) {
+        if (StringUtils.hasText(team)) {
+            teamStandingRepository.deleteByTeam(team);
+            teamStandingRepository.aggregateTeam(team, Metrics.higherIsBetterNames());
+        }
+    }
+
+    @Transactional
+    public void rebuildChallenge(Long challengeId) {
+        teamStandingRepository.deleteByChallenge(challengeId);
+        teamStandingRepository.aggregateChallenge(challengeId, Metrics.higherIsBetterNames());
+    }
+}
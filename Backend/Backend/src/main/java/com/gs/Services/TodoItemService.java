@@ -1,8 +1,11 @@
 package com.gs.Services;
 
+import com.gs.DTO.TodoItemDTO;
 import com.gs.Entities.TodoItem;
 import com.gs.Repositories.TodoItemRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
@@ -17,24 +20,57 @@ public class TodoItemService {
         this.todoRepository = todoRepository;
     }
 
-    public List<TodoItem> getAllTodos() {
-        return todoRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<TodoItemDTO> getAllTodos() {
+        return todoRepository.findAllDtos();
     }
 
-    public Optional<TodoItem> getTodoById(Long id) {
-        return todoRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<TodoItemDTO> getTodoById(Long id) {
+        return todoRepository.findDtoById(id);
     }
 
-    public List<TodoItem> getTodosByUserId(Long userId) {
-        return todoRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public List<TodoItemDTO> getTodosByUserId(Long userId) {
+        return todoRepository.findDtosByUserId(userId);
     }
 
-    public List<TodoItem> getTodosBeforeDeadline(Date date) {
-        return todoRepository.findByDeadlineBefore(date);
+    @Transactional(readOnly = true)
+    public List<TodoItemDTO> getTodosBeforeDeadline(Date date) {
+        return todoRepository.findDtosByDeadlineBefore(date);
     }
 
-    public TodoItem saveTodo(TodoItem todo) {
-        return todoRepository.save(todo);
+    // read back as a row, so the challenge is returned whole without loading its ground truth
+    @Transactional
+    public TodoItemDTO saveTodo(TodoItem todo) {
+        return todoRepository.findDtoById(todoRepository.saveAndFlush(todo).getId()).orElseThrow();
+    }
+
+    /**
+     * Applies the fields of {@code changes} that are set. Only the changed columns are written, and
+     * the version check makes a concurrent edit fail rather than be overwritten.
+     *
+     * @param expectedVersion the version the edit is based on, from If-Match; not checked when null
+     * @throws OptimisticLockingFailureException if the item was edited since that version
+     */
+    @Transactional
+    public Optional<TodoItemDTO> updateTodo(Long id, TodoItem changes, Long expectedVersion) {
+        return todoRepository.findById(id).map(todo -> {
+            if (expectedVersion != null && todo.getVersion() != expectedVersion) {
+                throw new OptimisticLockingFailureException("Todo " + id + " was edited since version " + expectedVersion);
+            }
+            if (changes.getText() != null) {
+                todo.setText(changes.getText());
+            }
+            if (changes.getDone() != null) {
+                todo.setDone(changes.getDone());
+            }
+            if (changes.getDeadline() != null) {
+                todo.setDeadline(changes.getDeadline());
+            }
+            todoRepository.saveAndFlush(todo);
+            return todoRepository.findDtoById(id).orElseThrow();
+        });
     }
 
     public void deleteTodo(Long id) {
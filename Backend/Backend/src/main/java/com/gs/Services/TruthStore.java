@@ -0,0 +1,232 @@
+package com.gs.Services;
+
+import com.gs.Entities.Challenge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ground truth too large for a row. Uploaded truth files, and packed truth columns over
+ * {@code truth.inline-max}, are stored as PostgreSQL large objects, written and read in chunks so
+ * neither passes through the heap whole, and without the 1 GB limit of {@code bytea}.
+ * <p>
+ * To score against a large column, each node copies it once into {@code truth.cache-dir} and maps the
+ * file read-only: the values are read from the page cache and take no heap. Copies are dropped when the
+ * challenge is evicted through the {@link InvalidationBus}, and all of them on startup.
+ */
+@Component
+public class TruthStore implements InvalidationBus.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(TruthStore.class);
+
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+    // a mapped buffer is addressed by int, the column is mapped in segments of 2^27 doubles
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reads;
+    private final long inlineMaxBytes;
+    private final Path cacheDir;
+
+    private final Map<Long, Mapped> mapped = new ConcurrentHashMap<>();
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    public TruthStore(JdbcTemplate jdbcTemplate,
+                      PlatformTransactionManager transactionManager,
+                      InvalidationBus invalidationBus,
+                      @Value("${truth.inline-max:64MB}") DataSize inlineMax,
+                      @Value("${truth.cache-dir:${java.io.tmpdir}/gs-truth}") Path cacheDir) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        // read-write, so the copy is taken from the primary, which has every committed truth
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.inlineMaxBytes = inlineMax.toBytes();
+        this.cacheDir = cacheDir;
+        Files.createDirectories(cacheDir);
+        deleteCopies("*");
+        invalidationBus.subscribe(InvalidationBus.CHALLENGE, this);
+    }
+
+    /**
+     * Packed columns larger than this are stored as large objects, see {@link GroundTruth#spilled()}.
+     */
+    public long inlineMaxBytes() {
+        return inlineMaxBytes;
+    }
+
+    /**
+     * Stores the content as a new large object and returns its oid. Runs in the caller's transaction,
+     * which must be a read-write one, so the object goes away again if that rolls back.
+     */
+    public long write(InputStream content) throws IOException {
+        Long oid = jdbcTemplate.queryForObject("SELECT lo_create(0)", Long.class);
+        byte[] chunk = new byte[CHUNK_BYTES];
+        long offset = 0;
+        int read;
+        while ((read = content.readNBytes(chunk, 0, chunk.length)) > 0) {
+            byte[] data = read == chunk.length ? chunk : Arrays.copyOf(chunk, read);
+            jdbcTemplate.query("SELECT lo_put(?::oid, ?, ?)", rs -> {
+            }, oid, offset, data);
+            offset += read;
+        }
+        return oid;
+    }
+
+    /**
+     * Deletes the large object, if there is one, in the caller's transaction.
+     */
+    public void delete(Long oid) {
+        if (oid != null) {
+            jdbcTemplate.query("SELECT lo_unlink(oid) FROM pg_largeobject_metadata WHERE oid = ?::oid", rs -> {
+            }, oid);
+        }
+    }
+
+    /**
+     * Deletes the large objects of the challenge, in the caller's transaction.
+     */
+    public void deleteOf(long challengeId) {
+        jdbcTemplate.query("SELECT lo_unlink(m.oid) FROM challenges c JOIN pg_largeobject_metadata m "
+                + "ON m.oid IN (c.truth_file_oid::oid, c.truth_values_oid::oid) WHERE c.id = ?", rs -> {
+        }, challengeId);
+    }
+
+    /**
+     * The challenge's packed values from the large object, mapped from this node's copy, which is taken
+     * on first use.
+     */
+    public List<Double> values(Challenge challenge) {
+        long id = challenge.getId();
+        long oid = challenge.getTruthValuesOid();
+        Mapped current = mapped.get(id);
+        if (current != null && current.oid() == oid) {
+            return current.values();
+        }
+        synchronized (locks.computeIfAbsent(id, key -> new Object())) {
+            current = mapped.get(id);
+            if (current == null || current.oid() != oid) {
+                try {
+                    current = new Mapped(oid, map(copy(id, oid, (long) challenge.getTruthRows() * Double.BYTES),
+                            challenge.getTruthRows()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not copy the ground truth of challenge " + id, e);
+                }
+                mapped.put(id, current);
+            }
+            return current.values();
+        }
+    }
+
+    @Override
+    public void evict(long challengeId) {
+        mapped.remove(challengeId);
+        deleteCopies("truth-" + challengeId + "-*");
+    }
+
+    @Override
+    public void evictAll() {
+        // the copies are named by large object and stay valid, they are mapped again on next use
+        mapped.clear();
+    }
+
+    private Path copy(long id, long oid, long bytes) throws IOException {
+        Path file = cacheDir.resolve("truth-" + id + "-" + oid + ".bin");
+        if (Files.exists(file) && Files.size(file) == bytes) {
+            return file;
+        }
+        Path partial = Files.createTempFile(cacheDir, "copy-", ".tmp");
+        try {
+            reads.executeWithoutResult(status -> {
+                try (OutputStream out = Files.newOutputStream(partial, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (long offset = 0; offset < bytes; offset += CHUNK_BYTES) {
+                        out.write(jdbcTemplate.queryForObject("SELECT lo_get(?::oid, ?, ?)", byte[].class,
+                                oid, offset, (int) Math.min(CHUNK_BYTES, bytes - offset)));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Copied the ground truth of challenge {} to {} ({} MB)", id, file, bytes >> 20);
+            return file;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static List<Double> map(Path file, int rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) (((long) rows + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int s = 0; s < segments.length; s++) {
+                long start = ((long) s << SEGMENT_SHIFT) * Double.BYTES;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(channel.size() - start,
+                        (long) Double.BYTES << SEGMENT_SHIFT));
+            }
+            return new MappedValues(segments, rows);
+        }
+    }
+
+    private void deleteCopies(String glob) {
+        try (DirectoryStream<Path> copies = Files.newDirectoryStream(cacheDir, glob)) {
+            for (Path copy : copies) {
+                // a mapping still in use stays readable after the file is gone
+                Files.deleteIfExists(copy);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete ground truth copies {} in {}: {}", glob, cacheDir, e.getMessage());
+        }
+    }
+
+    private record Mapped(long oid, List<Double> values) {
+    }
+
+    // absolute reads leave the buffers' positions alone, so the view can be shared between threads
+    private static final class MappedValues extends AbstractList<Double> implements RandomAccess {
+        private final MappedByteBuffer[] segments;
+        private final int rows;
+
+        MappedValues(MappedByteBuffer[] segments, int rows) {
+            this.segments = segments;
+            this.rows = rows;
+        }
+
+        @Override
+        public Double get(int index) {
+            Objects.checkIndex(index, rows);
+            return segments[index >>> SEGMENT_SHIFT].getDouble((index & SEGMENT_MASK) * Double.BYTES);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.gs.Services;
+
+import com.gs.DTO.RoleDTO;
+import com.gs.DTO.UserProfileDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resolves many users at once, for pages that show the people behind a list of submissions. Each
+ * lookup is one statement over an id array, {@code WHERE id = ANY(?)}, so the plan is the same for
+ * any number of ids, and the role and profile are joined in rather than loaded per user.
+ * <p>
+ * Callers can name the fields they need; the columns and joins of the others are left out of the query.
+ */
+@Service
+public class UserLookupService {
+
+    public static final int MAX_IDS = 500;
+
+    // the response fields in UserDTO order
+    private static final List<String> FIELDS = List.of("id", "email", "role", "profileCompleted", "team", "profile");
+
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "u.id",
+            "email", "u.email",
+            "role", "r.id AS role_id, r.role AS role_name",
+            "profileCompleted", "coalesce(u.is_profile_completed, false) AS profile_completed",
+            "team", "u.team",
+            "profile", "p.id AS profile_id, p.bio AS profile_bio");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserLookupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The users with the given ids in the order asked for, each with the requested fields only; ids
+     * without a user are left out.
+     *
+     * @param fields field names, all of them when null or empty
+     * @throws ResponseStatusException with status 400 for too many ids or an unknown field
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getUsers(Collection<Long> ids, Collection<String> fields) {
+        Long[] idArray = checkIds(ids);
+        List<String> selected = select(fields);
+
+        StringBuilder sql = new StringBuilder("SELECT u.id");
+        for (String field : selected) {
+            if (!field.equals("id")) {
+                sql.append(", ").append(COLUMNS.get(field));
+            }
+        }
+        sql.append(" FROM users u");
+        if (selected.contains("role")) {
+            sql.append(" LEFT JOIN roles r ON r.id = u.role_id");
+        }
+        if (selected.contains("profile")) {
+            sql.append(" LEFT JOIN user_profiles p ON p.user_id = u.id");
+        }
+        sql.append(" WHERE u.id = ANY(?)");
+
+        List<Map<String, Object>> users = inRequestOrder(jdbcTemplate.query(sql.toString(),
+                (rs, row) -> user(rs, selected), (Object) idArray), idArray, user -> (Long) user.get("id"));
+        if (!selected.contains("id")) {
+            // only read to order the result
+            users.forEach(user -> user.remove("id"));
+        }
+        return users;
+    }
+
+    /**
+     * The profiles of the given users, in the order asked for; users without a profile are left out.
+     *
+     * @throws ResponseStatusException with status 400 for too many ids
+     */
+    @Transactional(readOnly = true)
+    public List<UserProfileDTO> getProfilesByUserIds(Collection<Long> userIds) {
+        Long[] idArray = checkIds(userIds);
+        List<UserProfileDTO> profiles = jdbcTemplate.query(
+                "SELECT id, bio, user_id FROM user_profiles WHERE user_id = ANY(?)",
+                new DataClassRowMapper<>(UserProfileDTO.class), (Object) idArray);
+        return inRequestOrder(profiles, idArray, UserProfileDTO::userId);
+    }
+
+    private static Long[] checkIds(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_IDS + " ids per request");
+        }
+        return distinct.toArray(Long[]::new);
+    }
+
+    private static List<String> select(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return FIELDS;
+        }
+        for (String field : fields) {
+            if (!COLUMNS.containsKey(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field " + field + ", expected some of " + FIELDS);
+            }
+        }
+        return FIELDS.stream().filter(fields::contains).toList();
+    }
+
+    private static Map<String, Object> user(ResultSet rs, List<String> selected) throws SQLException {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", rs.getLong("id"));
+        for (String field : selected) {
+            switch (field) {
+                case "email" -> user.put(field, rs.getString("email"));
+                case "role" -> {
+                    Long roleId = rs.getObject("role_id", Long.class);
+                    user.put(field, roleId != null ? new RoleDTO(roleId, rs.getString("role_name")) : null);
+                }
+                case "profileCompleted" -> user.put(field, rs.getBoolean("profile_completed"));
+                case "team" -> user.put(field, rs.getString("team"));
+                case "profile" -> {
+                    Long profileId = rs.getObject("profile_id", Long.class);
+                    user.put(field, profileId != null
+                            ? new UserProfileDTO(profileId, rs.getString("profile_bio"), rs.getLong("id"))
+                            : null);
+                }
+                default -> {
+                    // id is always read
+                }
+            }
+        }
+        return user;
+    }
+
+    private static <T> List<T> inRequestOrder(List<T> rows, Long[] ids, Function<T, Long> id) {
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            position.put(ids[i], i);
+        }
+        return rows.stream().sorted(Comparator.comparing(row -> position.get(id.apply(row)))).toList();
+    }
+}
@@ -5,8 +5,10 @@ import com.gs.Entities.UserProfile;
 import com.gs.Repositories.UserProfileRepository;
 import com.gs.Services.UserService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -14,20 +16,26 @@ public class UserProfileService {
 
     private final UserProfileRepository profileRepository;
     private final UserService userService;
+    private final TeamStandingService teamStandingService;
 
-    public UserProfileService(UserProfileRepository profileRepository, UserService userService) {
+    public UserProfileService(UserProfileRepository profileRepository, UserService userService,
+                              TeamStandingService teamStandingService) {
         this.profileRepository = profileRepository;
         this.userService = userService;
+        this.teamStandingService = teamStandingService;
     }
 
+    @Transactional(readOnly = true)
     public List<UserProfile> getAllProfiles() {
         return profileRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<UserProfile> getProfileById(Long id) {
         return profileRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<UserProfile> getProfileByUserId(Long userId) {
         return profileRepository.findByUserId(userId);
     }
@@ -40,16 +48,25 @@ public class UserProfileService {
         profileRepository.deleteById(id);
     }
 
+    @Transactional
     public User completeUserProfile(Long userId, String teamName) {
         User user = userService.getUserById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        String previousTeam = user.getTeam();
         user.setTeam(teamName);
         user.setProfileCompleted(true);
 
-        return userService.saveUser(user);
+        User saved = userService.saveUser(user);
+        if (!Objects.equals(previousTeam, teamName)) {
+            // the user's submissions move to the new team's standings
+            teamStandingService.rebuildTeam(previousTeam);
+            teamStandingService.rebuildTeam(teamName);
+        }
+        return saved;
     }
 
+    @Transactional
     public UserProfile createOrUpdateUserProfile(Long userId, String bio) {
         User user = userService.getUserById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
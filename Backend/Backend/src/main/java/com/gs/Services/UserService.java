@@ -1,7 +1,9 @@
 package com.gs.Services;
+import com.gs.DTO.UserDTO;
 import com.gs.Entities.User;
 import com.gs.Repositories.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,32 +12,46 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final AuthService authService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, AuthService authService) {
         this.userRepository = userRepository;
+        this.authService = authService;
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<UserDTO> getAllUsers() {
+        return userRepository.findAllDtos();
     }
 
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
+    public Optional<UserDTO> getUserDtoById(Long id) {
+        return userRepository.findDtoById(id);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
 
-    public List<User> getUsersByRoleId(Long roleId) {
-        return userRepository.findByRoleId(roleId);
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersByRoleId(Long roleId) {
+        return userRepository.findDtosByRoleId(roleId);
     }
 
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        authService.evictCachedUser(saved.getId());
+        return saved;
     }
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        authService.evictCachedUser(id);
     }
 }
@@ -0,0 +1,26 @@
+-- Full-text search over challenges: a tsvector column kept current by a trigger on every insert and
+-- update, and a GIN index on it. Title matches weigh most, then the description, then the rules.
+-- Neither a generated column nor an UPDATE OF trigger: ddl-auto=update re-issues the types of the
+-- text columns on start, which PostgreSQL refuses for columns either of them depends on.
+-- The 'simple' configuration does not stem, which suits challenges written in any language; prefix
+-- queries cover most of what stemming would. Safe to run on every start.
+ALTER TABLE challenges ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION challenges_search_vector() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector :=
+        setweight(to_tsvector('simple', coalesce(NEW.title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(NEW.description, '')), 'B') ||
+        setweight(to_tsvector('simple', coalesce(NEW.rules, '')), 'C');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS challenges_search_vector ON challenges;
+CREATE TRIGGER challenges_search_vector BEFORE INSERT OR UPDATE ON challenges
+    FOR EACH ROW EXECUTE FUNCTION challenges_search_vector();
+
+-- rows written before the trigger existed
+UPDATE challenges SET title = title WHERE search_vector IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_challenges_search ON challenges USING GIN (search_vector);
@@ -0,0 +1,56 @@
+-- Converts the submissions table created by Hibernate into a table partitioned by challenge_id,
+-- with one partition per challenge and a default partition for rows without a challenge.
+-- Does nothing once the table is partitioned. The id column keeps its values and continues from a
+-- plain sequence, identity columns cannot be declared on a partitioned table before PostgreSQL 17.
+-- With ddl-auto=update Hibernate does not see the foreign keys of a partitioned table and logs a
+-- failed attempt to add them again on every start; the existing constraints are unaffected.
+DO $$
+DECLARE
+    challenge bigint;
+    foreign_keys text[];
+    foreign_key text;
+BEGIN
+    IF to_regclass('submissions') IS NULL
+            OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'submissions'::regclass) THEN
+        RETURN;
+    END IF;
+
+    LOCK TABLE submissions IN ACCESS EXCLUSIVE MODE;
+    SELECT array_agg(format('ALTER TABLE submissions ADD CONSTRAINT %I %s', conname, pg_get_constraintdef(oid)))
+      INTO foreign_keys
+      FROM pg_constraint
+     WHERE conrelid = 'submissions'::regclass AND contype = 'f';
+
+    ALTER TABLE submissions RENAME TO submissions_unpartitioned;
+    CREATE TABLE submissions (LIKE submissions_unpartitioned INCLUDING DEFAULTS) PARTITION BY LIST (challenge_id);
+
+    CREATE SEQUENCE submissions_partitioned_id_seq OWNED BY submissions.id;
+    PERFORM setval('submissions_partitioned_id_seq', coalesce((SELECT max(id) FROM submissions_unpartitioned), 0) + 1, false);
+    ALTER TABLE submissions ALTER COLUMN id SET DEFAULT nextval('submissions_partitioned_id_seq');
+
+    CREATE TABLE submissions_default PARTITION OF submissions DEFAULT;
+    ALTER TABLE submissions_default ADD PRIMARY KEY (id);
+    FOR challenge IN
+        SELECT challenge_id FROM submissions_unpartitioned WHERE challenge_id IS NOT NULL
+        UNION
+        SELECT id FROM challenges
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF submissions FOR VALUES IN (%s)',
+                       'submissions_c' || challenge, challenge);
+        EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id)', 'submissions_c' || challenge);
+    END LOOP;
+    CREATE INDEX idx_submissions_user ON submissions (user_id);
+
+    INSERT INTO submissions SELECT * FROM submissions_unpartitioned;
+    DROP TABLE submissions_unpartitioned;
+
+    FOREACH foreign_key IN ARRAY coalesce(foreign_keys, '{}') LOOP
+        EXECUTE foreign_key;
+    END LOOP;
+END
+$$;
+
+-- Hibernate does not see the columns of the partitioned table either, columns added to the entity
+-- after the conversion are added here.
+ALTER TABLE submissions ADD COLUMN IF NOT EXISTS metric_scores bytea;
+ALTER TABLE submissions ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+-- At most one running re-scoring job per challenge, across all nodes: RescoreService.startJob relies on
+-- this index to turn a second start into a conflict. Jobs started twice before it existed are resolved
+-- first: the oldest keeps running, the later ones are failed and their node stops at its next checkpoint.
+-- Safe to run on every start.
+UPDATE rescore_jobs j SET status = 'FAILED', message = 'Another re-scoring job of the challenge was running',
+       finished_at = LOCALTIMESTAMP, updated_at = LOCALTIMESTAMP, lease_owner = NULL
+ WHERE status = 'RUNNING'
+   AND EXISTS (SELECT 1 FROM rescore_jobs o WHERE o.challenge_id = j.challenge_id AND o.status = 'RUNNING' AND o.id < j.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_rescore_jobs_running ON rescore_jobs (challenge_id) WHERE status = 'RUNNING';
@@ -0,0 +1,5 @@
+-- The aggregates of ChallengeAnalyticsService are answered from these alone, as index-only scans.
+-- Runs after db/partition-submissions.sql, whose conversion does not carry indexes over, and whether
+-- the table is partitioned or not. Safe to run on every start.
+CREATE INDEX IF NOT EXISTS idx_submissions_challenge_score ON submissions (challenge_id, score) INCLUDE (user_id);
+CREATE INDEX IF NOT EXISTS idx_submissions_challenge_date ON submissions (challenge_id, submission_date);
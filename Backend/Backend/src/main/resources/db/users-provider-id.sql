@@ -0,0 +1,20 @@
+-- The OAuth sign-in upsert in UserRepository relies on a unique index on users.provider_id. Hibernate
+-- only creates it with ddl-auto=update, and not even then when sign-ins before the upsert left two users
+-- with the same provider ID. Such duplicates are resolved first: the oldest user keeps the provider ID,
+-- the later ones lose it and can no longer sign in; their rows and data stay. Safe to run on every start.
+UPDATE users u SET provider_id = NULL
+ WHERE provider_id IS NOT NULL
+   AND EXISTS (SELECT 1 FROM users o WHERE o.provider_id = u.provider_id AND o.id < u.id);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (
+            SELECT 1
+              FROM pg_index i
+              JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+             WHERE i.indrelid = 'users'::regclass AND i.indisunique AND i.indnatts = 1
+               AND i.indpred IS NULL AND a.attname = 'provider_id') THEN
+        CREATE UNIQUE INDEX uk_users_provider_id ON users (provider_id);
+    END IF;
+END
+$$;
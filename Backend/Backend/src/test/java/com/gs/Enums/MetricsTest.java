@@ -0,0 +1,198 @@
+package com.gs.Enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    private static final double DELTA = 1e-12;
+
+    // the example of scikit-learn's roc_auc_score and average_precision_score
+    private static final List<Double> LABELS = List.of(0.0, 0.0, 1.0, 1.0);
+    private static final List<Double> SCORES = List.of(0.1, 0.4, 0.35, 0.8);
+
+    @Test
+    void rocAuc() {
+        assertAllPaths(Metrics.ROC_AUC, SCORES, LABELS, 0.75);
+    }
+
+    @Test
+    void rocAucCountsTiesHalf() {
+        // one of the four pairs is tied
+        assertAllPaths(Metrics.ROC_AUC, List.of(0.1, 0.5, 0.5, 0.9), LABELS, 0.875);
+        assertAllPaths(Metrics.ROC_AUC, List.of(0.5, 0.5, 0.5, 0.5), List.of(0.0, 1.0, 0.0, 1.0), 0.5);
+        // ties across a run of negatives and positives: 2 + 2 + 3 of 3 * 3 pairs
+        assertAllPaths(Metrics.ROC_AUC, List.of(0.2, 0.3, 0.3, 0.3, 0.3, 0.9),
+                List.of(0.0, 1.0, 0.0, 1.0, 0.0, 1.0), 7.0 / 9);
+    }
+
+    @Test
+    void rocAucOfOneClass() {
+        assertAllPaths(Metrics.ROC_AUC, List.of(0.2, 0.7), List.of(1.0, 1.0), 0.5);
+    }
+
+    @Test
+    void averagePrecision() {
+        assertAllPaths(Metrics.AVERAGE_PRECISION, SCORES, LABELS, 0.8333333333333333);
+    }
+
+    @Test
+    void averagePrecisionTreatsTiesAsOneThreshold() {
+        assertAllPaths(Metrics.AVERAGE_PRECISION, List.of(0.5, 0.5, 0.5, 0.5), List.of(0.0, 1.0, 1.0, 0.0), 0.5);
+        // thresholds 0.9 (1 of 1) and 0.5 (3 of 4): (1 + 2 * 0.75) / 3
+        assertAllPaths(Metrics.AVERAGE_PRECISION, List.of(0.9, 0.5, 0.5, 0.5), List.of(1.0, 1.0, 1.0, 0.0), 2.5 / 3);
+    }
+
+    @Test
+    void averagePrecisionWithoutPositives() {
+        assertAllPaths(Metrics.AVERAGE_PRECISION, List.of(0.2, 0.7), List.of(0.0, 0.0), 0);
+    }
+
+    @Test
+    void logLoss() {
+        // scikit-learn's log_loss example, with spam as the positive class
+        assertAllPaths(Metrics.LOG_LOSS, List.of(0.9, 0.1, 0.2, 0.65), List.of(1.0, 0.0, 0.0, 1.0),
+                0.21616187468057912);
+    }
+
+    @Test
+    void logLossClipsCertainPredictions() {
+        assertAllPaths(Metrics.LOG_LOSS, List.of(1.0, 0.0), List.of(1.0, 0.0), 0);
+        // a confident miss costs -ln(1e-15) instead of infinity
+        assertAllPaths(Metrics.LOG_LOSS, List.of(0.0), List.of(1.0), 34.538776394910684, 1e-9);
+        // out of range predictions cost what the edges do
+        assertAllPaths(Metrics.LOG_LOSS, List.of(1.5, -0.5), List.of(0.0, 1.0),
+                Metrics.LOG_LOSS.calculate(List.of(1.0, 0.0), List.of(0.0, 1.0)));
+    }
+
+    @Test
+    void r2() {
+        // scikit-learn's r2_score example
+        assertAllPaths(Metrics.R2, List.of(2.5, 0.0, 2.0, 8.0), List.of(3.0, -0.5, 2.0, 7.0), 0.9486081370449679);
+    }
+
+    @Test
+    void r2Edges() {
+        assertAllPaths(Metrics.R2, List.of(1.0, 2.0, 3.0), List.of(1.0, 2.0, 3.0), 1);
+        // predicting the mean explains nothing, a worse model goes negative
+        assertAllPaths(Metrics.R2, List.of(2.0, 2.0, 2.0), List.of(1.0, 2.0, 3.0), 0);
+        assertAllPaths(Metrics.R2, List.of(3.0, 2.0, 1.0), List.of(1.0, 2.0, 3.0), -3);
+        // a constant truth only scores on an exact match
+        assertAllPaths(Metrics.R2, List.of(4.0, 4.0), List.of(4.0, 4.0), 1);
+        assertAllPaths(Metrics.R2, List.of(4.0, 5.0), List.of(4.0, 4.0), 0);
+    }
+
+    @Test
+    void splitsPublicAndPrivateRows() {
+        BitSet publicRows = new BitSet();
+        publicRows.set(0, 4);
+        List<Double> pred = new ArrayList<>(SCORES);
+        List<Double> truth = new ArrayList<>(LABELS);
+        pred.addAll(List.of(0.9, 0.1));
+        truth.addAll(List.of(0.0, 1.0));
+
+        Metrics.Split split = Metrics.ROC_AUC.calculateSplit(pred, truth, publicRows);
+        assertEquals(0.75, split.publicScore(), DELTA);
+        assertEquals(0, split.privateScore(), DELTA);
+        assertEquals(Double.NaN, Metrics.ROC_AUC.calculateSplit(SCORES, LABELS, null).privateScore());
+    }
+
+    @Test
+    void emptyPublicPartitionHasNoPublicScore() {
+        BitSet noPublicRows = new BitSet();
+        for (Metrics metric : Metrics.values()) {
+            Metrics.Split list = metric.calculateSplit(SCORES, LABELS, noPublicRows);
+            assertNull(list.publicScoreOrNull(), metric + " list");
+            assertEquals(metric.calculateSplit(SCORES, LABELS, null).publicScore(), list.privateScore(), DELTA);
+            assertNull(metric.calculateSplit(new ByteArrayInputStream(csv(SCORES)), LABELS, noPublicRows, false)
+                    .publicScoreOrNull(), metric + " streamed");
+        }
+
+        Map<Metrics, Metrics.Split> fused = Metrics.calculateAll(EnumSet.allOf(Metrics.class), SCORES, LABELS,
+                noPublicRows);
+        assertEquals(EnumSet.allOf(Metrics.class), fused.keySet());
+        fused.forEach((metric, split) -> assertNull(split.publicScoreOrNull(), metric + " fused"));
+        assertEquals(0, Metrics.packPublicScores(fused).length);
+    }
+
+    @Test
+    void packedOffsetFindsTheEntryOfAMetric() {
+        Map<Metrics, Metrics.Split> splits = Metrics.calculateAll(
+                EnumSet.of(Metrics.AVERAGE_PRECISION, Metrics.ROC_AUC, Metrics.ACCURACY), SCORES, LABELS, null);
+        byte[] packed = Metrics.packPublicScores(splits);
+        for (Metrics metric : splits.keySet()) {
+            int offset = Metrics.packedOffset(splits.keySet(), metric);
+            ByteBuffer entry = ByteBuffer.wrap(packed, offset, 1 + Double.BYTES);
+            assertEquals(metric.ordinal(), entry.get());
+            assertEquals(splits.get(metric).publicScore(), entry.getDouble(), DELTA);
+        }
+    }
+
+    @Test
+    void histogramAucStaysWithinItsErrorBound() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int bins : new int[]{16, 256, Metrics.APPROXIMATE_AUC_BINS}) {
+            Metrics.ExactAucAccumulator exact = new Metrics.ExactAucAccumulator();
+            Metrics.HistogramAucAccumulator histogram = new Metrics.HistogramAucAccumulator(bins);
+            for (int i = 0; i < 20_000; i++) {
+                double label = random.nextDouble() < 0.3 ? 1 : 0;
+                // overlapping classes, rounded so that some scores tie exactly
+                double score = Math.round((0.35 * label + 0.65 * random.nextDouble()) * 1000) / 1000.0;
+                exact.add(score, label);
+                histogram.add(score, label);
+            }
+            double error = Math.abs(histogram.result() - exact.result());
+            assertTrue(error <= histogram.errorBound() + DELTA,
+                    bins + " bins: error " + error + " over bound " + histogram.errorBound());
+        }
+    }
+
+    @Test
+    void histogramAucIsExactWhenNoPairSharesABin() {
+        Metrics.HistogramAucAccumulator histogram = new Metrics.HistogramAucAccumulator(Metrics.APPROXIMATE_AUC_BINS);
+        for (int i = 0; i < SCORES.size(); i++) {
+            histogram.add(SCORES.get(i), LABELS.get(i));
+        }
+        assertEquals(0, histogram.errorBound(), DELTA);
+        assertEquals(0.75, histogram.result(), DELTA);
+        assertEquals(0.8333333333333333, histogram.averagePrecision(), DELTA);
+    }
+
+    private static void assertAllPaths(Metrics metric, List<Double> pred, List<Double> truth, double expected) {
+        assertAllPaths(metric, pred, truth, expected, DELTA);
+    }
+
+    // the list kernel, the fused pass over several metrics and the streamed file must all agree
+    private static void assertAllPaths(Metrics metric, List<Double> pred, List<Double> truth, double expected,
+                                       double delta) {
+        assertEquals(expected, metric.calculateSplit(pred, truth, null).publicScore(), delta, "list");
+
+        EnumSet<Metrics> fused = EnumSet.of(metric, metric == Metrics.RMSE ? Metrics.MAE : Metrics.RMSE);
+        Map<Metrics, Metrics.Split> splits = Metrics.calculateAll(fused, pred, truth, null);
+        assertEquals(expected, splits.get(metric).publicScore(), delta, "fused");
+
+        assertEquals(expected, metric.calculateSplit(new ByteArrayInputStream(csv(pred)), truth, null, false)
+                .publicScore(), delta, "streamed");
+    }
+
+    private static byte[] csv(List<Double> pred) {
+        StringBuilder csv = new StringBuilder("id,prediction\n");
+        for (int i = 0; i < pred.size(); i++) {
+            csv.append(i).append(',').append(pred.get(i)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+#!/bin/sh
+# Production startup helpers for the packaged backend.
+#
+#   startup.sh archive <jar> <dir>   extract the jar into <dir> and train an AppCDS archive (<dir>/app.jsa)
+#   startup.sh measure <jar>         archive, then report the time until the readiness probe turns green
+#
+# The training run only refreshes the context and needs no database. The measurement starts the
+# real application, so the SPRING_DATASOURCE_* variables must point at a reachable database.
+set -e
+
+archive() {
+    jar=$1
+    dir=$2
+    rm -rf "$dir"
+    java -Djarmode=tools -jar "$jar" extract --destination "$dir"
+    java -XX:ArchiveClassesAtExit="$dir/app.jsa" \
+        -Dspring.aot.enabled=true \
+        -Dspring.context.exit=onRefresh \
+        -Dspring.datasource.url=jdbc:postgresql://localhost:5432/training \
+        -Dspring.datasource.username=training \
+        -Dspring.datasource.password=training \
+        -Dspring.jpa.hibernate.ddl-auto=none \
+        -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect \
+        -Dspring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false \
+        -jar "$dir/$(basename "$jar")"
+}
+
+measure() {
+    jar=$1
+    dir=$(dirname "$jar")/startup
+    port=${STARTUP_PORT:-18080}
+    runs=${STARTUP_RUNS:-3}
+    report=$(dirname "$jar")/startup-time.txt
+
+    archive "$jar" "$dir"
+    : > "$report"
+    for run in $(seq 1 "$runs"); do
+        start=$(date +%s%N)
+        java -XX:SharedArchiveFile="$dir/app.jsa" -Dspring.aot.enabled=true \
+            -Dserver.port="$port" -Dmanagement.endpoint.health.probes.enabled=true \
+            -Dscoring.warmup.enabled=true -jar "$dir/$(basename "$jar")" > "$dir/run-$run.log" 2>&1 &
+        pid=$!
+        until curl -sf "http://localhost:$port/actuator/health/readiness" > /dev/null; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "Backend exited before becoming ready, see $dir/run-$run.log" >&2
+                exit 1
+            fi
+            sleep 0.05
+        done
+        elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+        kill "$pid"
+        wait "$pid" || true
+        echo "run=$run ready_ms=$elapsed" | tee -a "$report"
+    done
+}
+
+case "$1" in
+    archive) archive "$2" "$3" ;;
+    measure) measure "$2" ;;
+    *) echo "usage: $0 archive <jar> <dir> | measure <jar>" >&2; exit 2 ;;
+esac
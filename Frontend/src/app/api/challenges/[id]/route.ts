@@ -1,4 +1,5 @@
 import { NextResponse } from 'next/server'
+import { forwardReadPrimary, returnReadPrimary } from '@/lib/read-primary'
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
@@ -10,6 +11,7 @@ export async function GET(
     const { id } = await params
     const response = await fetch(`${API_BASE_URL}/api/challenges/${id}`, {
       cache: 'no-store',
+      headers: forwardReadPrimary(request),
     })
     
     if (!response.ok) {
@@ -20,7 +22,7 @@ export async function GET(
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error fetching challenge:', error)
     return NextResponse.json(
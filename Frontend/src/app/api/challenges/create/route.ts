@@ -1,4 +1,5 @@
 import { NextResponse } from 'next/server'
+import { forwardReadPrimary, returnReadPrimary } from '@/lib/read-primary'
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
@@ -7,9 +8,9 @@ export async function POST(request: Request) {
     const body = await request.json()
     const response = await fetch(`${API_BASE_URL}/api/challenges`, {
       method: 'POST',
-      headers: {
+      headers: forwardReadPrimary(request, {
         'Content-Type': 'application/json',
-      },
+      }),
       body: JSON.stringify(body),
     })
     
@@ -22,7 +23,7 @@ export async function POST(request: Request) {
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error creating challenge:', error)
     return NextResponse.json(
@@ -1,11 +1,13 @@
 import { NextResponse } from 'next/server'
+import { forwardReadPrimary, returnReadPrimary } from '@/lib/read-primary'
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
-export async function GET() {
+export async function GET(request: Request) {
   try {
     const response = await fetch(`${API_BASE_URL}/api/challenges`, {
       cache: 'no-store',
+      headers: forwardReadPrimary(request),
     })
     
     if (!response.ok) {
@@ -16,7 +18,7 @@ export async function GET() {
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error fetching challenges:', error)
     return NextResponse.json(
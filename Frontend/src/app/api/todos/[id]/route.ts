@@ -1,4 +1,5 @@
 import { NextResponse } from 'next/server'
+import { forwardReadPrimary, returnReadPrimary } from '@/lib/read-primary'
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
@@ -12,9 +13,9 @@ export async function PUT(
     
     const response = await fetch(`${API_BASE_URL}/api/todos/${id}`, {
       method: 'PUT',
-      headers: {
+      headers: forwardReadPrimary(request, {
         'Content-Type': 'application/json',
-      },
+      }),
       body: JSON.stringify(body),
     })
     
@@ -27,7 +28,7 @@ export async function PUT(
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error updating todo:', error)
     return NextResponse.json(
@@ -46,6 +47,7 @@ export async function DELETE(
     
     const response = await fetch(`${API_BASE_URL}/api/todos/${id}`, {
       method: 'DELETE',
+      headers: forwardReadPrimary(request),
     })
     
     if (!response.ok) {
@@ -55,7 +57,7 @@ export async function DELETE(
       )
     }
     
-    return NextResponse.json({ success: true })
+    return NextResponse.json({ success: true }, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error deleting todo:', error)
     return NextResponse.json(
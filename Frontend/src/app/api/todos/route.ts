@@ -1,4 +1,5 @@
 import { NextResponse } from 'next/server'
+import { forwardReadPrimary, returnReadPrimary } from '@/lib/read-primary'
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
@@ -16,6 +17,7 @@ export async function GET(request: Request) {
     
     const response = await fetch(url, {
       cache: 'no-store',
+      headers: forwardReadPrimary(request),
     })
     
     if (!response.ok) {
@@ -27,7 +29,7 @@ export async function GET(request: Request) {
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error fetching todos:', error)
     return NextResponse.json(
@@ -42,9 +44,9 @@ export async function POST(request: Request) {
     const body = await request.json()
     const response = await fetch(`${API_BASE_URL}/api/todos`, {
       method: 'POST',
-      headers: {
+      headers: forwardReadPrimary(request, {
         'Content-Type': 'application/json',
-      },
+      }),
       body: JSON.stringify(body),
     })
     
@@ -57,7 +59,7 @@ export async function POST(request: Request) {
     }
     
     const data = await response.json()
-    return NextResponse.json(data)
+    return NextResponse.json(data, { headers: returnReadPrimary(response) })
   } catch (error) {
     console.error('Error creating todo:', error)
     return NextResponse.json(
@@ -10,7 +10,8 @@ import { Button } from "@/components/ui/button";
 import { Separator } from "@/components/ui/separator";
 import { FileUpload } from "@/components/file-upload";
 import { SubmissionCard } from "@/components/submission-card";
-import { Calendar, Clock, Upload, FileText, CheckCircle } from "lucide-react";
+import { LiveStandings } from "@/components/live-standings";
+import { Calendar, Clock, Upload, FileText, CheckCircle, Trophy } from "lucide-react";
 import { Alert, AlertDescription } from "@/components/ui/alert";
 
 export default function ChallengeDetailPage({
@@ -47,7 +48,7 @@ export default function ChallengeDetailPage({
           const userId = parseInt(session.userId);
           if (!isNaN(userId)) {
             const userSubs = submissionsData.filter(
-              (sub) => sub.user?.id === userId
+              (sub) => sub.userId === userId
             );
             setUserSubmissions(userSubs);
           }
@@ -120,7 +121,7 @@ export default function ChallengeDetailPage({
 
       // Refresh submissions
       const submissionsData = await getSubmissionsByChallenge(challengeId);
-      const userSubs = submissionsData.filter((sub) => sub.user?.id === userId);
+      const userSubs = submissionsData.filter((sub) => sub.userId === userId);
       setUserSubmissions(userSubs);
 
       // Reset success message after 3 seconds
@@ -183,6 +184,19 @@ export default function ChallengeDetailPage({
         </CardContent>
       </Card>
 
+      <Card>
+        <CardHeader>
+          <CardTitle className="flex items-center gap-2">
+            <Trophy className="h-5 w-5" />
+            Leaderboard
+          </CardTitle>
+          <CardDescription>Best public score of each participant, updated as submissions are scored</CardDescription>
+        </CardHeader>
+        <CardContent>
+          <LiveStandings challengeId={challengeId} currentUserId={session?.userId?.toString()} />
+        </CardContent>
+      </Card>
+
       {isActive && (
         <Card>
           <CardHeader>
@@ -2,7 +2,7 @@
 
 import { useState, useEffect } from "react";
 import { useRouter } from "next/navigation";
-import { getSubmissions, getChallenges, type Submission, type Challenge } from "@/lib/api";
+import { getSubmissions, getChallenges, getUsersByIds, type Submission, type Challenge } from "@/lib/api";
 import {
   Table,
   TableBody,
@@ -23,6 +23,7 @@ export default function JudgeSubmissionsPage() {
   const [selectedStatus, setSelectedStatus] = useState<string>("all");
   const [submissions, setSubmissions] = useState<Submission[]>([]);
   const [challenges, setChallenges] = useState<Challenge[]>([]);
+  const [emails, setEmails] = useState<Map<number, string>>(new Map());
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
 
@@ -37,6 +38,17 @@ export default function JudgeSubmissionsPage() {
 
         setSubmissions(subsData);
         setChallenges(challengesData);
+
+        // submissions only carry the user id, look the participants up in batches
+        const userIds = [...new Set(subsData.flatMap((sub) => (sub.userId !== null ? [sub.userId] : [])))];
+        const found = new Map<number, string>();
+        for (let i = 0; i < userIds.length; i += 500) {
+          const users = await getUsersByIds(userIds.slice(i, i + 500), ["id", "email"]);
+          users.forEach((user) => {
+            if (user.id !== undefined && user.email) found.set(user.id, user.email);
+          });
+        }
+        setEmails(found);
         setError(null);
       } catch (err) {
         setError(err instanceof Error ? err.message : "Failed to load submissions");
@@ -182,7 +194,7 @@ export default function JudgeSubmissionsPage() {
                   {filteredSubmissions.map((submission) => (
                     <TableRow key={submission.id}>
                       <TableCell className="font-medium">
-                        {submission.user?.email || "Unknown User"}
+                        {(submission.userId !== null && emails.get(submission.userId)) || "Unknown User"}
                       </TableCell>
                       <TableCell className="max-w-xs truncate">
                         {challenges.find(c => c.id === submission.challengeId)?.title || `Challenge ${submission.challengeId}`}
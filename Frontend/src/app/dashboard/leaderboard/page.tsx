@@ -2,9 +2,11 @@
 
 import { useState, useEffect } from "react";
 import { useSession } from "next-auth/react";
-import { calculateLeaderboard } from "@/lib/api";
+import { calculateLeaderboard, getChallenges, type Challenge } from "@/lib/api";
 import { LeaderboardTable } from "@/components/leaderboard-table";
+import { LiveStandings } from "@/components/live-standings";
 import { Card, CardContent, CardDescription, CardHeader, CardTitle } from "@/components/ui/card";
+import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from "@/components/ui/select";
 import { Trophy } from "lucide-react";
 
 export default function LeaderboardPage() {
@@ -12,13 +14,19 @@ export default function LeaderboardPage() {
   const [leaderboard, setLeaderboard] = useState<any[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [challenges, setChallenges] = useState<Challenge[]>([]);
+  const [selectedChallenge, setSelectedChallenge] = useState<string>("");
 
   useEffect(() => {
     const fetchLeaderboard = async () => {
       try {
         setLoading(true);
-        const data = await calculateLeaderboard();
+        const [data, challengesData] = await Promise.all([calculateLeaderboard(), getChallenges()]);
         setLeaderboard(data);
+        setChallenges(challengesData);
+        if (challengesData.length > 0) {
+          setSelectedChallenge(challengesData[0].id.toString());
+        }
         setError(null);
       } catch (err) {
         setError(err instanceof Error ? err.message : "Failed to load leaderboard");
@@ -81,6 +89,41 @@ export default function LeaderboardPage() {
         </Card>
       )}
 
+      {challenges.length > 0 && (
+        <Card>
+          <CardHeader>
+            <div className="flex items-start justify-between gap-4">
+              <div className="space-y-1.5">
+                <CardTitle>Challenge Standings</CardTitle>
+                <CardDescription>
+                  Best public score of each participant, updated as submissions are scored
+                </CardDescription>
+              </div>
+              <Select value={selectedChallenge} onValueChange={setSelectedChallenge}>
+                <SelectTrigger className="w-[280px]">
+                  <SelectValue placeholder="Select a challenge" />
+                </SelectTrigger>
+                <SelectContent>
+                  {challenges.map((challenge) => (
+                    <SelectItem key={challenge.id} value={challenge.id.toString()}>
+                      {challenge.title}
+                    </SelectItem>
+                  ))}
+                </SelectContent>
+              </Select>
+            </div>
+          </CardHeader>
+          <CardContent>
+            {selectedChallenge && (
+              <LiveStandings
+                challengeId={parseInt(selectedChallenge)}
+                currentUserId={session?.userId?.toString()}
+              />
+            )}
+          </CardContent>
+        </Card>
+      )}
+
       <Card>
         <CardHeader>
           <CardTitle>Overall Rankings</CardTitle>
@@ -0,0 +1,104 @@
+"use client";
+
+import { useEffect, useState } from "react";
+import { getUsersByIds } from "@/lib/api";
+import { POLL_INTERVAL_MS, useLiveStandings } from "@/lib/live-standings";
+import { Badge } from "@/components/ui/badge";
+import {
+  Table,
+  TableBody,
+  TableCell,
+  TableHead,
+  TableHeader,
+  TableRow,
+} from "@/components/ui/table";
+import { Trophy, Medal } from "lucide-react";
+
+interface LiveStandingsProps {
+  challengeId: number;
+  currentUserId?: string;
+}
+
+export function LiveStandings({ challengeId, currentUserId }: LiveStandingsProps) {
+  const { standings, live, error } = useLiveStandings(challengeId);
+  const [names, setNames] = useState<Map<number, string>>(new Map());
+
+  // names are looked up once per participant, rank changes only carry ids
+  useEffect(() => {
+    const missing = Array.from(new Set(standings.map((standing) => standing.userId)))
+      .filter((userId): userId is number => userId !== null && !names.has(userId))
+      .slice(0, 500);
+    if (missing.length === 0) return;
+    getUsersByIds(missing, ["id", "email"])
+      .then((users) => {
+        setNames((current) => {
+          const next = new Map(current);
+          missing.forEach((userId) => next.set(userId, "Unknown"));
+          users.forEach((user) => {
+            if (user.id !== undefined) next.set(user.id, user.email || "Unknown");
+          });
+          return next;
+        });
+      })
+      .catch((err) => console.error("Error fetching participants:", err));
+  }, [standings, names]);
+
+  const getRankIcon = (rank: number) => {
+    if (rank === 1) return <Trophy className="h-5 w-5 text-yellow-500" />;
+    if (rank === 2) return <Medal className="h-5 w-5 text-gray-400" />;
+    if (rank === 3) return <Medal className="h-5 w-5 text-amber-600" />;
+    return <span className="text-muted-foreground">#{rank}</span>;
+  };
+
+  return (
+    <div className="space-y-3">
+      <div className="flex items-center justify-end">
+        {live ? (
+          <Badge variant="default" className="bg-green-600">Live</Badge>
+        ) : (
+          <Badge variant="secondary">Refreshing every {POLL_INTERVAL_MS / 1000}s</Badge>
+        )}
+      </div>
+
+      {error && <p className="text-sm text-destructive">{error}</p>}
+
+      {standings.length === 0 ? (
+        <p className="py-8 text-center text-sm text-muted-foreground">No scored submissions yet</p>
+      ) : (
+        <div className="rounded-md border">
+          <Table>
+            <TableHeader>
+              <TableRow>
+                <TableHead className="w-20">Rank</TableHead>
+                <TableHead>Participant</TableHead>
+                <TableHead className="text-right">Score</TableHead>
+              </TableRow>
+            </TableHeader>
+            <TableBody>
+              {standings.map((standing) => {
+                const isCurrentUser = currentUserId && standing.userId?.toString() === currentUserId;
+                return (
+                  <TableRow
+                    key={standing.userId !== null ? `u${standing.userId}` : `s${standing.submissionId}`}
+                    className={isCurrentUser ? "bg-primary/5 border-l-4 border-l-primary" : ""}
+                  >
+                    <TableCell className="font-medium">
+                      <div className="flex items-center justify-center">{getRankIcon(standing.rank)}</div>
+                    </TableCell>
+                    <TableCell>
+                      {standing.userId !== null
+                        ? names.get(standing.userId) ?? `User #${standing.userId}`
+                        : `Anonymous submission #${standing.submissionId}`}
+                      {isCurrentUser && <span className="text-primary ml-2">(You)</span>}
+                    </TableCell>
+                    <TableCell className="text-right font-bold">{standing.score}</TableCell>
+                  </TableRow>
+                );
+              })}
+            </TableBody>
+          </Table>
+        </div>
+      )}
+    </div>
+  );
+}
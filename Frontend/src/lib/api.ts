@@ -1,3 +1,5 @@
+import { apiFetch } from "./read-primary"
+
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || "http://localhost:8080"
 
 export interface Challenge {
@@ -16,10 +18,8 @@ export interface Submission {
   fileName: string
   fileExtension: string
   challengeId: number
-  user?: {
-    id: number
-    email: string
-  }
+  // null for anonymous submissions
+  userId: number | null
 }
 
 export interface User {
@@ -46,7 +46,7 @@ export interface TodoItem {
 export async function getChallenges(): Promise<Challenge[]> {
   try {
     // Use Next.js API route as proxy to avoid CORS issues
-    const response = await fetch('/api/challenges', {
+    const response = await apiFetch('/api/challenges', {
       method: 'GET',
       headers: {
         'Content-Type': 'application/json',
@@ -68,19 +68,19 @@ export async function getChallenges(): Promise<Challenge[]> {
 }
 
 export async function getChallengeById(id: number): Promise<Challenge> {
-  const response = await fetch(`/api/challenges/${id}`)
+  const response = await apiFetch(`/api/challenges/${id}`)
   if (!response.ok) throw new Error("Failed to fetch challenge")
   return response.json()
 }
 
 export async function getActiveChallenges(): Promise<Challenge[]> {
-  const response = await fetch(`/api/challenges/active`)
+  const response = await apiFetch(`/api/challenges/active`)
   if (!response.ok) throw new Error("Failed to fetch active challenges")
   return response.json()
 }
 
 export async function createChallenge(challenge: Omit<Challenge, "id">): Promise<Challenge> {
-  const response = await fetch(`/api/challenges/create`, {
+  const response = await apiFetch(`/api/challenges/create`, {
     method: "POST",
     headers: { "Content-Type": "application/json" },
     body: JSON.stringify(challenge),
@@ -91,25 +91,25 @@ export async function createChallenge(challenge: Omit<Challenge, "id">): Promise
 
 // Submissions API
 export async function getSubmissions(): Promise<Submission[]> {
-  const response = await fetch(`${API_BASE_URL}/api/submissions`)
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions`)
   if (!response.ok) throw new Error("Failed to fetch submissions")
   return response.json()
 }
 
 export async function getSubmissionById(id: number): Promise<Submission> {
-  const response = await fetch(`${API_BASE_URL}/api/submissions/${id}`)
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions/${id}`)
   if (!response.ok) throw new Error("Failed to fetch submission")
   return response.json()
 }
 
 export async function getSubmissionsByUser(userId: number): Promise<Submission[]> {
-  const response = await fetch(`${API_BASE_URL}/api/submissions/user/${userId}`)
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions/user/${userId}`)
   if (!response.ok) throw new Error("Failed to fetch user submissions")
   return response.json()
 }
 
 export async function getSubmissionsByChallenge(challengeId: number): Promise<Submission[]> {
-  const response = await fetch(`${API_BASE_URL}/api/submissions/challenge/${challengeId}`)
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions/challenge/${challengeId}`)
   if (!response.ok) throw new Error("Failed to fetch challenge submissions")
   return response.json()
 }
@@ -136,7 +136,7 @@ export async function createSubmission(data: {
     feedback: null,
   }
 
-  const response = await fetch(`${API_BASE_URL}/api/submissions`, {
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions`, {
     method: "POST",
     headers: { "Content-Type": "application/json" },
     body: JSON.stringify(submission),
@@ -150,7 +150,7 @@ export async function updateSubmission(
   score: number,
   feedback: string
 ): Promise<Submission> {
-  const response = await fetch(`${API_BASE_URL}/api/submissions/${id}`, {
+  const response = await apiFetch(`${API_BASE_URL}/api/submissions/${id}`, {
     method: "PUT",
     headers: { "Content-Type": "application/json" },
     body: JSON.stringify({ score, feedback }),
@@ -176,7 +176,7 @@ export async function fileToBase64(file: File): Promise<string> {
 
 // Users API
 export async function getUserById(id: number): Promise<User> {
-  const response = await fetch(`${API_BASE_URL}/api/users/${id}`)
+  const response = await apiFetch(`${API_BASE_URL}/api/users/${id}`)
   if (!response.ok) throw new Error("Failed to fetch user")
   return response.json()
 }
@@ -186,27 +186,36 @@ export async function getUserByEmail(email: string): Promise<User | null> {
   return users.find((u) => u.email === email) || null
 }
 
+// At most 500 ids per request; users that do not exist are left out
+export async function getUsersByIds(ids: number[], fields?: string[]): Promise<Partial<User>[]> {
+  const params = new URLSearchParams({ ids: ids.join(",") })
+  if (fields) params.set("fields", fields.join(","))
+  const response = await apiFetch(`${API_BASE_URL}/api/users/batch?${params}`)
+  if (!response.ok) throw new Error("Failed to fetch users")
+  return response.json()
+}
+
 export async function getAllUsers(): Promise<User[]> {
-  const response = await fetch(`${API_BASE_URL}/api/users`)
+  const response = await apiFetch(`${API_BASE_URL}/api/users`)
   if (!response.ok) throw new Error("Failed to fetch users")
   return response.json()
 }
 
 // Todos API
 export async function getTodos(): Promise<TodoItem[]> {
-  const response = await fetch(`/api/todos`)
+  const response = await apiFetch(`/api/todos`)
   if (!response.ok) throw new Error("Failed to fetch todos")
   return response.json()
 }
 
 export async function getTodosByUser(userId: number): Promise<TodoItem[]> {
-  const response = await fetch(`/api/todos?userId=${userId}`)
+  const response = await apiFetch(`/api/todos?userId=${userId}`)
   if (!response.ok) throw new Error("Failed to fetch user todos")
   return response.json()
 }
 
 export async function createTodo(todo: Omit<TodoItem, "id">): Promise<TodoItem> {
-  const response = await fetch(`/api/todos`, {
+  const response = await apiFetch(`/api/todos`, {
     method: "POST",
     headers: { "Content-Type": "application/json" },
     body: JSON.stringify(todo),
@@ -216,7 +225,7 @@ export async function createTodo(todo: Omit<TodoItem, "id">): Promise<TodoItem>
 }
 
 export async function updateTodo(id: number, todo: Partial<TodoItem>): Promise<TodoItem> {
-  const response = await fetch(`/api/todos/${id}`, {
+  const response = await apiFetch(`/api/todos/${id}`, {
     method: "PUT",
     headers: { "Content-Type": "application/json" },
     body: JSON.stringify(todo),
@@ -226,15 +235,35 @@ export async function updateTodo(id: number, todo: Partial<TodoItem>): Promise<T
 }
 
 export async function deleteTodo(id: number): Promise<void> {
-  const response = await fetch(`/api/todos/${id}`, {
+  const response = await apiFetch(`/api/todos/${id}`, {
     method: "DELETE",
   })
   if (!response.ok) throw new Error("Failed to delete todo")
 }
 
+// Leaderboard API
+export interface Standing {
+  rank: number
+  // null for anonymous submissions, which rank on their own
+  userId: number | null
+  submissionId: number
+  score: number
+}
+
+export async function getStandings(challengeId: number): Promise<Standing[]> {
+  const response = await apiFetch(`${API_BASE_URL}/api/leaderboard/challenge/${challengeId}`)
+  if (!response.ok) throw new Error("Failed to fetch standings")
+  return response.json()
+}
+
+// Server-sent events: the full standings as "standings", then "rank-changes" with the moved entries
+export function standingsStreamUrl(challengeId: number): string {
+  return `${API_BASE_URL}/api/leaderboard/challenge/${challengeId}/stream`
+}
+
 // Hackathon Information API
 export async function getHackathonInformation() {
-  const response = await fetch(`${API_BASE_URL}/api/hackathon-information`)
+  const response = await apiFetch(`${API_BASE_URL}/api/hackathon-information`)
   if (!response.ok) return null
   return response.json()
 }
@@ -255,8 +284,8 @@ export async function calculateLeaderboard() {
   const userScores = new Map<number, { totalScore: number; submissionCount: number }>()
 
   submissions.forEach((sub) => {
-    if (sub.score !== null && sub.user) {
-      const userId = sub.user.id
+    if (sub.score !== null && sub.userId !== null) {
+      const userId = sub.userId
       const current = userScores.get(userId) || { totalScore: 0, submissionCount: 0 }
       userScores.set(userId, {
         totalScore: current.totalScore + sub.score,
@@ -0,0 +1,88 @@
+import { useEffect, useState } from "react"
+import { getStandings, standingsStreamUrl, type Standing } from "./api"
+
+// how often the standings are fetched while the event stream is down
+export const POLL_INTERVAL_MS = 15000
+
+// one entry per participant, keyed the way the backend keys them
+function participantKey(standing: Standing): string {
+  return standing.userId !== null ? `u${standing.userId}` : `s${standing.submissionId}`
+}
+
+function applyChanges(standings: Standing[], changes: Standing[]): Standing[] {
+  const merged = new Map(standings.map((standing) => [participantKey(standing), standing]))
+  changes.forEach((standing) => merged.set(participantKey(standing), standing))
+  return Array.from(merged.values()).sort((a, b) => a.rank - b.rank)
+}
+
+// Standings of a challenge kept up to date over its event stream. Polling is only the fallback: it runs
+// while the stream is down or EventSource is missing, and stops when the browser has reconnected, which
+// it does on its own and which sends the full standings again.
+export function useLiveStandings(challengeId: number | null) {
+  const [standings, setStandings] = useState<Standing[]>([])
+  const [live, setLive] = useState(false)
+  const [error, setError] = useState<string | null>(null)
+
+  useEffect(() => {
+    if (challengeId === null || Number.isNaN(challengeId)) return
+    let closed = false
+    let timer: ReturnType<typeof setInterval> | null = null
+    setStandings([])
+
+    const poll = async () => {
+      try {
+        const data = await getStandings(challengeId)
+        // a poll answered after the stream came back would be older than what it sent
+        if (!closed && timer !== null) {
+          setStandings(data)
+          setError(null)
+        }
+      } catch (err) {
+        if (!closed && timer !== null) setError(err instanceof Error ? err.message : "Failed to load standings")
+      }
+    }
+    const startPolling = () => {
+      if (timer !== null) return
+      timer = setInterval(poll, POLL_INTERVAL_MS)
+      poll()
+    }
+    const stopPolling = () => {
+      if (timer !== null) clearInterval(timer)
+      timer = null
+    }
+
+    if (typeof EventSource === "undefined") {
+      startPolling()
+      return () => {
+        closed = true
+        stopPolling()
+      }
+    }
+
+    const source = new EventSource(standingsStreamUrl(challengeId))
+    source.addEventListener("standings", (event) => {
+      stopPolling()
+      setLive(true)
+      setError(null)
+      setStandings(JSON.parse((event as MessageEvent).data))
+    })
+    source.addEventListener("rank-changes", (event) => {
+      const changes: Standing[] = JSON.parse((event as MessageEvent).data)
+      setStandings((current) => applyChanges(current, changes))
+    })
+    // reconnecting, or closed for good after an HTTP error; polled in the meantime either way
+    source.onerror = () => {
+      setLive(false)
+      startPolling()
+    }
+
+    return () => {
+      closed = true
+      source.close()
+      stopPolling()
+      setLive(false)
+    }
+  }, [challengeId])
+
+  return { standings, live, error }
+}
@@ -0,0 +1,46 @@
+// Read-your-writes against a backend with a read replica: after a write the backend answers with the
+// time until which this client should read the primary, and honours it when it comes back on later
+// requests. Cookies do not make it back cross-origin or through the route handlers, so it travels as a
+// header instead.
+export const READ_PRIMARY_HEADER = "X-Read-Primary-Until"
+
+const STORAGE_KEY = "gs-read-primary-until"
+
+let readPrimaryUntil: string | null = null
+
+function stored(): string | null {
+  if (readPrimaryUntil === null && typeof window !== "undefined") {
+    readPrimaryUntil = window.sessionStorage.getItem(STORAGE_KEY)
+  }
+  if (readPrimaryUntil !== null && Number(readPrimaryUntil) <= Date.now()) {
+    readPrimaryUntil = null
+    if (typeof window !== "undefined") window.sessionStorage.removeItem(STORAGE_KEY)
+  }
+  return readPrimaryUntil
+}
+
+// Browser side: fetch that sends the last deadline and keeps the one a write returns
+export async function apiFetch(input: string, init: RequestInit = {}): Promise<Response> {
+  const headers = new Headers(init.headers)
+  const until = stored()
+  if (until !== null) headers.set(READ_PRIMARY_HEADER, until)
+  const response = await fetch(input, { ...init, headers })
+  const returned = response.headers.get(READ_PRIMARY_HEADER)
+  if (returned !== null) {
+    readPrimaryUntil = returned
+    if (typeof window !== "undefined") window.sessionStorage.setItem(STORAGE_KEY, returned)
+  }
+  return response
+}
+
+// Route handlers: the deadline the browser sent, to pass on to the backend
+export function forwardReadPrimary(request: Request, headers: Record<string, string> = {}): Record<string, string> {
+  const until = request.headers.get(READ_PRIMARY_HEADER)
+  return until !== null ? { ...headers, [READ_PRIMARY_HEADER]: until } : headers
+}
+
+// Route handlers: the deadline the backend returned, to pass back to the browser
+export function returnReadPrimary(backend: Response): Record<string, string> {
+  const until = backend.headers.get(READ_PRIMARY_HEADER)
+  return until !== null ? { [READ_PRIMARY_HEADER]: until } : {}
+}